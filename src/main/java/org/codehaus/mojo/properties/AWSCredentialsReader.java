@@ -0,0 +1,180 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Single pass reader for AWS style <code>credentials</code>/<code>config</code> INI files.
+ *
+ * Every <code>key = value</code> line inside a <code>[section]</code> is emitted as <code>section.key</code>. The
+ * value is everything after the first <code>=</code>, so values that themselves contain <code>=</code> are kept
+ * intact. Lines starting with <code>#</code> or <code>;</code> are comments. Indented lines following a key with an
+ * empty value (the AWS nested form, e.g. <code>s3 =</code> followed by <code>  max_concurrent_requests = 20</code>)
+ * are emitted as <code>section.parent.key</code>.
+ *
+ * The input is consumed as UTF-8 bytes through a reused line buffer, so the only allocations per line are the
+ * emitted key and value.
+ *
+ * @author mykelalvis
+ */
+final class AWSCredentialsReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    /* Skipped at the start of the first line */
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final StringBuilder key = new StringBuilder(64);
+
+    private byte[] line = new byte[256];
+
+    private int length;
+
+    private int lineNumber;
+
+    /* Length of "section." in key, or 0 outside of any section */
+    private int sectionLength;
+
+    /* Length of "section.parent." in key while inside a nested block, otherwise -1 */
+    private int nestedLength = -1;
+
+    private AWSCredentialsReader() {}
+
+    /**
+     * @param in the source, which is read to the end but not closed
+     * @param target receives one entry per key
+     * @throws IOException if the source cannot be read or contains a line that is neither a section, a comment nor a
+     *     <code>key = value</code> pair
+     */
+    static void read(InputStream in, Map<String, String> target) throws IOException {
+        new AWSCredentialsReader().readAll(in, target);
+    }
+
+    private void readAll(InputStream in, Map<String, String> target) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        boolean skipLF = false;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                if (b == '\n' && skipLF) {
+                    skipLF = false;
+                    continue;
+                }
+                skipLF = false;
+                if (b == '\n' || b == '\r') {
+                    skipLF = b == '\r';
+                    processLine(target);
+                    length = 0;
+                } else {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+            }
+        }
+        if (length > 0) {
+            processLine(target);
+        }
+    }
+
+    private boolean startsWithBom() {
+        if (length < UTF8_BOM.length) {
+            return false;
+        }
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (line[i] != UTF8_BOM[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void processLine(Map<String, String> target) throws IOException {
+        lineNumber++;
+        int start = 0;
+        if (lineNumber == 1 && startsWithBom()) {
+            start = UTF8_BOM.length;
+        }
+        int end = length;
+        while (start < end && isWhitespace(line[start])) {
+            start++;
+        }
+        while (end > start && isWhitespace(line[end - 1])) {
+            end--;
+        }
+        if (start == end || line[start] == '#' || line[start] == ';') {
+            return;
+        }
+        boolean indented = isWhitespace(line[0]);
+        if (line[start] == '[') {
+            if (line[end - 1] != ']') {
+                throw new IOException("Unterminated section header at line " + lineNumber);
+            }
+            key.setLength(0);
+            appendUtf8(key, start + 1, end - 1, true);
+            if (key.length() > 0) {
+                key.append('.');
+            }
+            sectionLength = key.length();
+            nestedLength = -1;
+            return;
+        }
+        int eq = start;
+        while (eq < end && line[eq] != '=') {
+            eq++;
+        }
+        if (eq == end) {
+            throw new IOException("Expected 'key = value' at line " + lineNumber);
+        }
+        int keyEnd = eq;
+        while (keyEnd > start && isWhitespace(line[keyEnd - 1])) {
+            keyEnd--;
+        }
+        int valueStart = eq + 1;
+        while (valueStart < end && isWhitespace(line[valueStart])) {
+            valueStart++;
+        }
+
+        if (!indented || nestedLength < 0) {
+            nestedLength = -1;
+            key.setLength(sectionLength);
+        } else {
+            key.setLength(nestedLength);
+        }
+        appendUtf8(key, start, keyEnd, false);
+        if (valueStart == end && !indented) {
+            /* May be the parent of an indented block; the key itself is still emitted with an empty value */
+            nestedLength = key.length() + 1;
+            target.put(key.toString(), "");
+            key.append('.');
+            return;
+        }
+        target.put(key.toString(), new String(line, valueStart, end - valueStart, StandardCharsets.UTF_8));
+    }
+
+    private void appendUtf8(StringBuilder sb, int from, int to, boolean trim) {
+        if (trim) {
+            while (from < to && isWhitespace(line[from])) {
+                from++;
+            }
+            while (to > from && isWhitespace(line[to - 1])) {
+                to--;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            if (line[i] < 0) {
+                sb.append(new String(line, i, to - i, StandardCharsets.UTF_8));
+                return;
+            }
+            sb.append((char) line[i]);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
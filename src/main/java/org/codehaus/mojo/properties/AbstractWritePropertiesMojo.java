@@ -19,17 +19,18 @@ package org.codehaus.mojo.properties;
  * under the License.
  */
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Properties;
 
 import org.apache.maven.plugin.AbstractMojo;
@@ -47,12 +48,51 @@ public abstract class AbstractWritePropertiesMojo extends AbstractMojo {
      */
     static final String DEFAULT_ENCODING = "ISO-8859-1";
 
+    private static final int WRITE_BUFFER_SIZE = 65536;
+
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
-    @Parameter(required = true, property = "properties.outputFile")
+    /**
+     * The properties file to write. Required unless <code>outputs</code> are set.
+     */
+    @Parameter(property = "properties.outputFile")
     private File outputFile;
 
+    /**
+     * Further files to write, each with a <code>file</code>, a <code>format</code> (<code>properties</code>,
+     * <code>json</code>, <code>yaml</code>, <code>dotenv</code> or <code>shell</code>) and optionally an
+     * <code>encoding</code>. The properties are sorted once for all of them. JSON and YAML nest dotted keys into
+     * objects; dotenv and shell turn keys into variable names such as <code>DB_URL</code>.
+     */
+    @Parameter
+    private Output[] outputs = new Output[0];
+
+    /**
+     * Only properties whose key starts with this prefix are written.
+     */
+    @Parameter(property = "properties.prefix")
+    private String prefix;
+
+    /**
+     * Whether <code>prefix</code> is removed from the keys written.
+     */
+    @Parameter(defaultValue = "false", property = "properties.stripPrefix")
+    private boolean stripPrefix;
+
+    /**
+     * Patterns of the keys to write, with <code>*</code> and <code>?</code> wildcards, e.g. <code>db.*</code>. All keys
+     * are written when empty. Patterns match the keys before <code>prefix</code> is stripped.
+     */
+    @Parameter
+    private String[] includes = new String[0];
+
+    /**
+     * Patterns of the keys not to write, as for <code>includes</code>.
+     */
+    @Parameter
+    private String[] excludes = new String[0];
+
     /**
      * The encoding to use when writing the properties file.
      */
@@ -87,13 +127,60 @@ public abstract class AbstractWritePropertiesMojo extends AbstractMojo {
     }
 
     /**
+     * Default scope for test access
+     *
+     * @param outputs the outputs to set
+     */
+    void setOutputs(Output[] outputs) {
+        this.outputs = outputs == null ? new Output[0] : outputs.clone();
+    }
+
+    /**
+     * Default scope for test access
+     *
+     * @param prefix the prefix of the keys to write
+     * @param stripPrefix whether the prefix is removed
+     * @param includes patterns of the keys to write
+     * @param excludes patterns of the keys not to write
+     */
+    void setFilter(String prefix, boolean stripPrefix, String[] includes, String[] excludes) {
+        this.prefix = prefix;
+        this.stripPrefix = stripPrefix;
+        this.includes = includes == null ? new String[0] : includes.clone();
+        this.excludes = excludes == null ? new String[0] : excludes.clone();
+    }
+
+    /**
+     * Writes the selected properties to <code>outputFile</code> and every one of <code>outputs</code>.
+     *
      * @param properties {@link Properties}
-     * @param file {@link File}
      * @throws MojoExecutionException {@link MojoExecutionException}
      */
-    protected void writeProperties(Properties properties, File file) throws MojoExecutionException {
+    protected void writeProperties(Properties properties) throws MojoExecutionException {
+        SortedProperties sorted = SortedProperties.of(properties);
+        if (prefix != null || includes.length > 0 || excludes.length > 0) {
+            sorted = sorted.filter(prefix, stripPrefix, Arrays.asList(includes), Arrays.asList(excludes));
+        }
+        if (outputFile != null) {
+            writeProperties(sorted, outputFile, new PropertiesWriter("Properties"), encoding);
+        }
+        for (Output output : outputs) {
+            PropertiesEncoder encoder = PropertiesEncoder.forFormat(output.getFormat());
+            writeProperties(sorted, output.getFile(), encoder, encoding(output, encoder));
+        }
+    }
+
+    private String encoding(Output output, PropertiesEncoder encoder) {
+        if (output.getEncoding() != null) {
+            return output.getEncoding();
+        }
+        return encoder instanceof PropertiesWriter ? encoding : "UTF-8";
+    }
+
+    private void writeProperties(SortedProperties properties, File file, PropertiesEncoder encoder, String charset)
+            throws MojoExecutionException {
         try {
-            storeWithoutTimestamp(properties, file, "Properties");
+            storeWithoutTimestamp(properties, file, encoder, Charset.forName(charset));
         } catch (FileNotFoundException e) {
             getLog().error("Could not create FileOutputStream: " + file);
             throw new MojoExecutionException(e.getMessage(), e);
@@ -104,26 +191,29 @@ public abstract class AbstractWritePropertiesMojo extends AbstractMojo {
     }
 
     // https://github.com/apache/maven-archiver/blob/master/src/main/java/org/apache/maven/archiver/PomPropertiesUtil.java#L81
-    private void storeWithoutTimestamp(Properties properties, File outputFile, String comments) throws IOException {
-        try (PrintWriter pw = new PrintWriter(outputFile, this.encoding);
-                StringWriter sw = new StringWriter()) {
-            properties.store(sw, comments);
-            comments = '#' + comments;
-
-            List<String> lines = new ArrayList<>();
-            try (BufferedReader r = new BufferedReader(new StringReader(sw.toString()))) {
-                String line;
-                while ((line = r.readLine()) != null) {
-                    if (!line.startsWith("#") || line.equals(comments)) {
-                        lines.add(line);
-                    }
-                }
+    // The file is left untouched when its content would not change, so that its timestamp does not trigger later
+    // incremental steps, and is otherwise replaced atomically so that parallel builds never read a partial file
+    private void storeWithoutTimestamp(
+            SortedProperties properties, File outputFile, PropertiesEncoder encoder, Charset charset)
+            throws IOException {
+        Path target = outputFile.getAbsoluteFile().toPath();
+        Path tmp = ContentStore.createSibling(target);
+        try {
+            MessageDigest digest = ContentStore.newSha256();
+            try (Writer out = new BufferedWriter(
+                    new OutputStreamWriter(new DigestOutputStream(Files.newOutputStream(tmp), digest), charset),
+                    WRITE_BUFFER_SIZE)) {
+                encoder.encode(properties, out);
             }
-
-            Collections.sort(lines);
-            for (String l : lines) {
-                pw.println(l);
+            if (Files.isRegularFile(target)
+                    && Files.size(target) == Files.size(tmp)
+                    && ContentStore.hex(digest.digest()).equals(ContentStore.sha256(target))) {
+                getLog().info("Properties are unchanged, left " + outputFile + " untouched");
+                return;
             }
+            ContentStore.moveAtomically(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
         }
     }
 
@@ -131,22 +221,51 @@ public abstract class AbstractWritePropertiesMojo extends AbstractMojo {
      * @throws MojoExecutionException {@link MojoExecutionException}
      */
     protected void validateOutputFile() throws MojoExecutionException {
-        if (outputFile.isDirectory()) {
-            throw new MojoExecutionException("outputFile must be a file and not a directory");
+        if (outputFile == null && outputs.length == 0) {
+            throw new MojoExecutionException("Either outputFile or outputs must be set");
+        }
+        if (outputFile != null) {
+            validateOutputFile(outputFile, "outputFile");
+        }
+        for (Output output : outputs) {
+            if (output.getFile() == null) {
+                throw new MojoExecutionException("Every output must have a file");
+            }
+            if (output.getFormat() == null || PropertiesEncoder.forFormat(output.getFormat()) == null) {
+                throw new MojoExecutionException(String.format(
+                        "Unknown format '%s' for %s, use properties, json, yaml, dotenv or shell",
+                        output.getFormat(), output.getFile()));
+            }
+            validateOutputFile(output.getFile(), "output " + output.getFile());
+        }
+    }
+
+    private static void validateOutputFile(File file, String name) throws MojoExecutionException {
+        if (file.isDirectory()) {
+            throw new MojoExecutionException(name + " must be a file and not a directory");
         }
         // ensure path exists
-        if (outputFile.getParentFile() != null) {
-            outputFile.getParentFile().mkdirs();
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
         }
     }
     /**
      * @throws MojoExecutionException {@link MojoExecutionException}
      */
     protected void validateEncoding() throws MojoExecutionException {
+        validateEncoding(this.encoding);
+        for (Output output : outputs) {
+            if (output.getEncoding() != null) {
+                validateEncoding(output.getEncoding());
+            }
+        }
+    }
+
+    private static void validateEncoding(String encoding) throws MojoExecutionException {
         try {
-            Charset.forName(this.encoding);
+            Charset.forName(encoding);
         } catch (IllegalArgumentException e) {
-            throw new MojoExecutionException(String.format("Invalid encoding '%s'", this.encoding), e);
+            throw new MojoExecutionException(String.format("Invalid encoding '%s'", encoding), e);
         }
     }
 
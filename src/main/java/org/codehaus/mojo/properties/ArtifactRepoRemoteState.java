@@ -1,15 +1,27 @@
 package org.codehaus.mojo.properties;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.Authenticator;
-import java.net.PasswordAuthentication;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.settings.Server;
 import org.apache.maven.settings.Settings;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
 
 import static java.util.Objects.requireNonNull;
 
@@ -42,6 +54,14 @@ public class ArtifactRepoRemoteState {
      * Subpath within repo of tfstate file
      */
     private String subpath;
+    /**
+     * Maven coordinates of the tfstate artifact, <code>groupId:artifactId:version[:classifier[:type]]</code> (the type
+     * defaults to <code>json</code>), used instead of <code>subpath</code>. The artifact is resolved through the Maven
+     * repository system, so it is cached in the local repository and mirrors, proxies and checksum policies apply. When
+     * <code>url</code> and <code>repo</code> are set the artifact is resolved from that repository, with the
+     * credentials of <code>serverId</code>, otherwise from the repositories of the project.
+     */
+    private String coordinates;
 
     public String getId() {
         return id;
@@ -83,10 +103,20 @@ public class ArtifactRepoRemoteState {
         this.subpath = subpath;
     }
 
+    public String getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(String coordinates) {
+        this.coordinates = coordinates;
+    }
+
     private Server server;
 
     private String localUrl;
 
+    private Artifact artifact;
+
     /**
      *
      * @return contents as a valid JSON String
@@ -94,14 +124,83 @@ public class ArtifactRepoRemoteState {
     public String readContents() throws IOException {
         requireNonNull(serverId, "serverId is required");
         URL u = new URL(localUrl);
-        Authenticator.setDefault(getAuthenticator());
         URLConnection conn = u.openConnection();
+        /* Set on the connection rather than as the default Authenticator, so states can be read concurrently */
+        if (server != null && server.getUsername() != null) {
+            String password = server.getPassword() != null ? server.getPassword() : "";
+            String credentials = server.getUsername() + ":" + password;
+            conn.setRequestProperty(
+                    "Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
 
         try (InputStream ins = conn.getInputStream()) {
             return ReadJSONObjectAsFlattenedPropertiesMojo.readStream(ins);
         }
     }
 
+    /**
+     * Resolves the artifact named by <code>coordinates</code>, downloading it only if it is not in the local repository
+     * yet (or, for snapshots, when the update policy says so).
+     *
+     * @param system the repository system
+     * @param session the repository session of the build
+     * @param projectRepositories the remote repositories of the project, used when no <code>url</code> is set
+     * @return contents as a valid JSON String
+     */
+    public String readContents(
+            RepositorySystem system, RepositorySystemSession session, List<RemoteRepository> projectRepositories)
+            throws IOException {
+        File file = resolve(system, session, projectRepositories).getArtifact().getFile();
+        try (InputStream ins = Files.newInputStream(file.toPath())) {
+            return ReadJSONObjectAsFlattenedPropertiesMojo.readStream(ins);
+        }
+    }
+
+    /**
+     * Resolves the artifact named by <code>coordinates</code> into the local repository like
+     * {@link #readContents(RepositorySystem, RepositorySystemSession, List)}.
+     *
+     * @param system the repository system
+     * @param session the repository session of the build
+     * @param projectRepositories the remote repositories of the project, used when no <code>url</code> is set
+     * @return the number of bytes downloaded, <code>0</code> when the artifact was already in the local repository
+     */
+    long prefetch(RepositorySystem system, RepositorySystemSession session, List<RemoteRepository> projectRepositories)
+            throws IOException {
+        ArtifactResult result = resolve(system, session, projectRepositories);
+        return result.getRepository() instanceof RemoteRepository
+                ? result.getArtifact().getFile().length()
+                : 0;
+    }
+
+    private ArtifactResult resolve(
+            RepositorySystem system, RepositorySystemSession session, List<RemoteRepository> projectRepositories)
+            throws IOException {
+        List<RemoteRepository> repositories = projectRepositories;
+        if (url != null && repo != null) {
+            RemoteRepository repository =
+                    new RemoteRepository.Builder(serverId != null ? serverId : id, "default", url + "/" + repo).build();
+            /* Applies the mirrors, proxies and credentials of the settings */
+            repositories = system.newResolutionRepositories(session, Collections.singletonList(repository));
+        }
+        try {
+            return system.resolveArtifact(session, new ArtifactRequest(artifact, repositories, null));
+        } catch (ArtifactResolutionException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the URL of the state and the server used to read it, e.g. for caching
+     */
+    String getLocation() {
+        if (artifact != null) {
+            return "mvn:" + artifact + (url != null && repo != null ? "?repository=" + url + "/" + repo : "");
+        }
+        return localUrl + "?serverId=" + serverId;
+    }
+
     public ArtifactRepoRemoteState validate(ArtifactRepoRemoteState defaults, Settings settings)
             throws MojoExecutionException {
         if (defaults != null) {
@@ -110,6 +209,13 @@ public class ArtifactRepoRemoteState {
             url = url == null ? defaults.url : url;
             subpath = subpath == null ? defaults.subpath : subpath;
         }
+        if (coordinates != null) {
+            this.artifact = artifact(coordinates);
+            if (serverId != null && settings.getServer(serverId) == null) {
+                throw new MojoExecutionException("Server " + serverId + " not found in settings in " + id);
+            }
+            return this;
+        }
         if (serverId != null) {
             this.server = settings.getServer(serverId);
             if (this.server == null) {
@@ -124,12 +230,14 @@ public class ArtifactRepoRemoteState {
         return this;
     }
 
-    private Authenticator getAuthenticator() {
-        return new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(
-                        server.getUsername(), server.getPassword().toCharArray());
-            }
-        };
+    private Artifact artifact(String coordinates) throws MojoExecutionException {
+        String[] parts = coordinates.trim().split(":", -1);
+        if (parts.length < 3 || parts.length > 5 || parts[0].isEmpty() || parts[1].isEmpty() || parts[2].isEmpty()) {
+            throw new MojoExecutionException("Coordinates of " + id
+                    + " must be groupId:artifactId:version[:classifier[:type]], not " + coordinates);
+        }
+        String classifier = parts.length > 3 ? parts[3] : "";
+        String type = parts.length > 4 && !parts[4].isEmpty() ? parts[4] : "json";
+        return new DefaultArtifact(parts[0], parts[1], classifier, type, parts[2]);
     }
 }
@@ -0,0 +1,232 @@
+package org.codehaus.mojo.properties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * On-disk store of downloaded content, shared between builds.
+ *
+ * Each entry is stored as <code>&lt;sha256 of key&gt;.data</code> with a <code>.properties</code> side file holding
+ * the key, the SHA-256 checksum of the content and any metadata (e.g. <code>ETag</code> and
+ * <code>Last-Modified</code> for conditional requests). Files are written to a temporary name and moved into place,
+ * and the checksum is verified on every read, so a torn or corrupted entry reads as absent rather than as bad data.
+ * Entries are only readable by their owner.
+ *
+ * @author mykelalvis
+ */
+final class ContentStore {
+    static final String SHA256 = "sha256";
+
+    private static final String KEY = "key";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path directory;
+
+    /**
+     * A stored entry.
+     */
+    static final class Entry {
+        private final byte[] content;
+
+        private final Properties metadata;
+
+        Entry(byte[] content, Properties metadata) {
+            this.content = content;
+            this.metadata = metadata;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        String getMetadata(String name) {
+            return metadata.getProperty(name);
+        }
+    }
+
+    ContentStore(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    /**
+     * @param key identifies the content, e.g. its URL
+     * @return the verified entry, or <code>null</code> if there is none or it fails verification
+     * @throws IOException if the store cannot be read
+     */
+    Entry get(String key) throws IOException {
+        String name = sha256(key.getBytes(StandardCharsets.UTF_8));
+        Path metadataFile = directory.resolve(name + ".properties");
+        Path dataFile = directory.resolve(name + ".data");
+        if (!Files.isRegularFile(metadataFile) || !Files.isRegularFile(dataFile)) {
+            return null;
+        }
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+        }
+        byte[] content = Files.readAllBytes(dataFile);
+        if (!key.equals(metadata.getProperty(KEY)) || !sha256(content).equals(metadata.getProperty(SHA256))) {
+            return null;
+        }
+        return new Entry(content, metadata);
+    }
+
+    /**
+     * @param key identifies the content
+     * @param content the content
+     * @param metadata extra values to store alongside, <code>null</code> values are skipped
+     * @throws IOException if the entry cannot be written
+     */
+    void put(String key, byte[] content, Map<String, String> metadata) throws IOException {
+        Files.createDirectories(directory);
+        String name = sha256(key.getBytes(StandardCharsets.UTF_8));
+        Properties p = new Properties();
+        for (Map.Entry<String, String> e : metadata.entrySet()) {
+            if (e.getValue() != null) {
+                p.setProperty(e.getKey(), e.getValue());
+            }
+        }
+        p.setProperty(KEY, key);
+        p.setProperty(SHA256, sha256(content));
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        p.store(metadataBytes, null);
+
+        writeAtomically(directory.resolve(name + ".data"), content);
+        writeAtomically(directory.resolve(name + ".properties"), metadataBytes.toByteArray());
+    }
+
+    /**
+     * Writes to a temporary file in the same directory and moves it into place, so readers never see a partial file.
+     * The content may hold secrets, so the file is only readable by its owner (<code>rw-------</code>).
+     *
+     * @param target the file to replace
+     * @param content its new content
+     * @throws IOException if the file cannot be written
+     */
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(content);
+            }
+            moveAtomically(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Creates an empty file next to <code>target</code> to write its replacement to. Unlike
+     * {@link Files#createTempFile}, which always creates <code>rw-------</code> files, the file gets the permissions of
+     * <code>target</code> when it exists and the default ones (i.e. the umask) otherwise, so that replacing a file never
+     * makes it unreadable to those who could read it before.
+     *
+     * @param target the file to be replaced
+     * @return the new, empty file
+     * @throws IOException if the file cannot be created
+     */
+    static Path createSibling(Path target) throws IOException {
+        String prefix = target.getFileName().toString();
+        while (true) {
+            Path tmp = target.resolveSibling(
+                    prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.createFile(tmp);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            if (Files.isRegularFile(target)) {
+                try {
+                    Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException e) {
+                    // not a POSIX file system, the default permissions apply
+                }
+            }
+            return tmp;
+        }
+    }
+
+    /**
+     * @param source a complete file, in the same directory as <code>target</code>
+     * @param target the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String sha256(byte[] content) {
+        return hex(newSha256().digest(content));
+    }
+
+    /**
+     * @param file the file to digest
+     * @return the SHA-256 of its content, in hex
+     * @throws IOException if the file cannot be read
+     */
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param in the stream to drain, not closed
+     * @return everything remaining in the stream
+     * @throws IOException if the stream cannot be read
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    public String toString() {
+        return "content store " + directory;
+    }
+}
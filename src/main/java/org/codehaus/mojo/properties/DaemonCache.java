@@ -0,0 +1,161 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-lifetime cache for long running Maven processes such as the Maven daemon (mvnd), where the plugin classes
+ * stay loaded between builds.
+ *
+ * It holds a {@link ParsedSourceCache} that watches the directories of local sources, and the content of remote
+ * sources. Remote content is served from memory for a time to live, after which it is revalidated (with a conditional
+ * request where the source supports one) or fetched again. Both parts share one memory cap and evict the least
+ * recently used entries first.
+ *
+ * @author mykelalvis
+ */
+final class DaemonCache {
+    /**
+     * Default of the <code>daemonCache.ttl</code> parameters, in seconds.
+     */
+    static final int DEFAULT_TTL = 300;
+
+    private static DaemonCache instance;
+
+    /**
+     * Remote content and the validators needed to revalidate it.
+     */
+    static final class Remote {
+        private final byte[] content;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private volatile long fetchedAt;
+
+        Remote(byte[] content, String etag, String lastModified) {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Fetches remote content.
+     */
+    interface Fetcher {
+        /**
+         * @param stale the expired entry, or <code>null</code>; return it to keep it (e.g. after a 304)
+         * @return the current content
+         * @throws IOException if the content cannot be fetched
+         */
+        Remote fetch(Remote stale) throws IOException;
+    }
+
+    private final ParsedSourceCache parsedSources;
+
+    private final Map<String, Remote> remotes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long remoteBytes;
+
+    private long maxBytes;
+
+    private final AtomicLong remoteHits = new AtomicLong();
+
+    private final AtomicLong remoteFetches = new AtomicLong();
+
+    private DaemonCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.parsedSources = new ParsedSourceCache(maxBytes / 2, true);
+    }
+
+    /**
+     * @param maxMegabytes the memory cap, applied to the shared instance on every call
+     * @return the instance shared by every build of this process
+     */
+    static synchronized DaemonCache get(int maxMegabytes) {
+        long maxBytes = maxMegabytes * 1024L * 1024L;
+        if (instance == null) {
+            instance = new DaemonCache(maxBytes);
+        } else if (instance.maxBytes != maxBytes) {
+            instance.setMaxBytes(maxBytes);
+        }
+        return instance;
+    }
+
+    private void setMaxBytes(long maxBytes) {
+        parsedSources.setMaxBytes(maxBytes / 2);
+        synchronized (remotes) {
+            this.maxBytes = maxBytes;
+            evict();
+        }
+    }
+
+    ParsedSourceCache getParsedSources() {
+        return parsedSources;
+    }
+
+    /**
+     * @param key identifies the content, e.g. its URL
+     * @param ttlSeconds how long content is used without asking the source
+     * @param fetcher called when there is no content or it has expired
+     * @return the content
+     * @throws IOException if the content has to be fetched and cannot be
+     */
+    byte[] remote(String key, int ttlSeconds, Fetcher fetcher) throws IOException {
+        long now = System.nanoTime();
+        Remote cached;
+        synchronized (remotes) {
+            cached = remotes.get(key);
+        }
+        if (cached != null && now - cached.fetchedAt < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            remoteHits.incrementAndGet();
+            return cached.content;
+        }
+        remoteFetches.incrementAndGet();
+        Remote fetched = fetcher.fetch(cached);
+        fetched.fetchedAt = now;
+        synchronized (remotes) {
+            Remote previous = remotes.put(key, fetched);
+            if (previous != null) {
+                remoteBytes -= previous.content.length;
+            }
+            remoteBytes += fetched.content.length;
+            evict();
+        }
+        return fetched.content;
+    }
+
+    private void evict() {
+        Iterator<Remote> eldest = remotes.values().iterator();
+        while (remoteBytes > maxBytes / 2 && eldest.hasNext()) {
+            remoteBytes -= eldest.next().content.length;
+            eldest.remove();
+        }
+    }
+
+    public String toString() {
+        synchronized (remotes) {
+            return "daemon cache: " + parsedSources + "; remote: " + remoteHits.get() + " hit(s), "
+                    + remoteFetches.get() + " fetch(es), " + remotes.size() + " source(s), ~" + (remoteBytes >> 10)
+                    + " KiB";
+        }
+    }
+}
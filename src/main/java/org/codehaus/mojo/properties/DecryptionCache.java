@@ -0,0 +1,85 @@
+package org.codehaus.mojo.properties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
+
+/**
+ * Build scoped cache of decrypted <code>settings.xml</code> values, keyed by their cipher text, so that a secret shared
+ * by many servers, modules and executions is decrypted once per build. Decrypting reads the master password from
+ * <code>settings-security.xml</code> and runs the cipher every time.
+ *
+ * Only values in the encrypted <code>{...}</code> form are passed to the dispatcher and cached. Anything else, like
+ * user names or plain text passwords, is returned as it is and never held here. The decrypted values are only held in
+ * memory, in the repository session data, and go away with the session at the end of the build. They are never
+ * written anywhere.
+ *
+ * @author mykelalvis
+ */
+final class DecryptionCache {
+    private final Map<String, String> plain = new ConcurrentHashMap<>();
+
+    private final AtomicInteger decrypts = new AtomicInteger();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    /**
+     * @param session the current session, may be <code>null</code> (e.g. in tests) in which case an unshared cache is
+     *     returned
+     * @return the cache shared by every execution in the session
+     */
+    static DecryptionCache forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new DecryptionCache();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        /* Keyed by the Class object so that different plugin versions in one reactor never share instances */
+        Object cache = data.get(DecryptionCache.class);
+        while (cache == null) {
+            data.set(DecryptionCache.class, null, new DecryptionCache());
+            cache = data.get(DecryptionCache.class);
+        }
+        return (DecryptionCache) cache;
+    }
+
+    /**
+     * @param dispatcher decrypts values that are not cached yet
+     * @param value a value from <code>settings.xml</code>, encrypted or not
+     * @return the decrypted value, or <code>value</code> itself when it is not encrypted
+     * @throws SecDispatcherException if the value cannot be decrypted
+     */
+    String decrypt(SecDispatcher dispatcher, String value) throws SecDispatcherException {
+        if (!isEncrypted(value)) {
+            return value;
+        }
+        String decrypted = plain.get(value);
+        if (decrypted != null) {
+            hits.incrementAndGet();
+            return decrypted;
+        }
+        decrypts.incrementAndGet();
+        decrypted = dispatcher.decrypt(value);
+        plain.putIfAbsent(value, decrypted);
+        return decrypted;
+    }
+
+    /* Whether the value has the {...} form the dispatcher decrypts; anything else it returns unchanged */
+    static boolean isEncrypted(String value) {
+        int start = value.indexOf('{');
+        return start >= 0 && value.indexOf('}', start + 1) > start;
+    }
+
+    int getDecrypts() {
+        return decrypts.get();
+    }
+
+    public String toString() {
+        return "decryption cache: " + decrypts.get() + " decrypt call(s), " + hits.get() + " hit(s), " + plain.size()
+                + " value(s)";
+    }
+}
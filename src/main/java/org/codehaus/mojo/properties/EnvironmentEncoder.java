@@ -0,0 +1,112 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Encodes properties as environment variables, either as a <code>.env</code> file or as a POSIX shell script of
+ * <code>export</code> statements.
+ *
+ * Keys are turned into variable names by upper-casing them and replacing every character other than a letter, digit
+ * or underscore with an underscore (<code>db.url</code> becomes <code>DB_URL</code>). Keys that map to the same name
+ * are all written, in dotted order, so the last one wins when the file is read.
+ *
+ * @author mykelalvis
+ */
+final class EnvironmentEncoder implements PropertiesEncoder {
+    private final boolean export;
+
+    /**
+     * @param export <code>true</code> for <code>export NAME='value'</code> shell statements, <code>false</code> for
+     *     <code>NAME='value'</code> dotenv lines
+     */
+    EnvironmentEncoder(boolean export) {
+        this.export = export;
+    }
+
+    public void encode(SortedProperties properties, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        for (String key : properties.keys()) {
+            line.setLength(0);
+            if (export) {
+                line.append("export ");
+            }
+            name(line, key);
+            line.append('=');
+            if (export) {
+                shellQuote(line, properties.get(key));
+            } else {
+                dotenvQuote(line, properties.get(key));
+            }
+            line.append('\n');
+            out.append(line);
+        }
+    }
+
+    private static void name(StringBuilder line, String key) {
+        if (key.isEmpty() || (key.charAt(0) >= '0' && key.charAt(0) <= '9')) {
+            line.append('_');
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                line.append((char) (c - 'a' + 'A'));
+            } else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+                line.append(c);
+            } else {
+                line.append('_');
+            }
+        }
+    }
+
+    /* Single quotes keep everything literal; a quote is closed, escaped and reopened */
+    private static void shellQuote(StringBuilder line, String value) {
+        line.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                line.append("'\\''");
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('\'');
+    }
+
+    /*
+     * Single quoted, so that dotenv readers neither interpolate nor unescape, unless the value has a quote or a line
+     * break, which only double quotes can carry
+     */
+    private static void dotenvQuote(StringBuilder line, String value) {
+        boolean literal = true;
+        for (int i = 0; i < value.length() && literal; i++) {
+            char c = value.charAt(i);
+            literal = c != '\'' && c != '\n' && c != '\r';
+        }
+        if (literal) {
+            line.append('\'').append(value).append('\'');
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,90 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Build scoped cache of directory scans, so that modules reading the same <code>fileSets</code> walk the tree only
+ * once per build.
+ *
+ * Matches are returned sorted by their path relative to the scanned directory, compared with <code>/</code> as the
+ * separator on every platform, so the order in which fragments are applied does not depend on the file system.
+ * Default excludes (SCM metadata, editor backups) are always applied. A scan is not repeated during the build, so files
+ * created under a scanned directory by a later module are not seen by modules that share the same scan.
+ *
+ * @author mykelalvis
+ */
+final class FileSetScanner {
+    private final Map<String, List<File>> scans = new ConcurrentHashMap<>();
+
+    /**
+     * @param session the current session, may be <code>null</code> (e.g. in tests) in which case an unshared scanner
+     *     is returned
+     * @return the scanner shared by every execution in the session
+     */
+    static FileSetScanner forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new FileSetScanner();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        /* Keyed by the Class object so that different plugin versions in one reactor never share instances */
+        Object scanner = data.get(FileSetScanner.class);
+        while (scanner == null) {
+            data.set(FileSetScanner.class, null, new FileSetScanner());
+            scanner = data.get(FileSetScanner.class);
+        }
+        return (FileSetScanner) scanner;
+    }
+
+    /**
+     * @param directory an existing directory
+     * @param includes the include patterns, all files when empty
+     * @param excludes the exclude patterns
+     * @return the immutable, sorted list of matching files
+     * @throws IOException if the directory cannot be resolved
+     */
+    List<File> scan(File directory, List<String> includes, List<String> excludes) throws IOException {
+        File base = directory.getCanonicalFile();
+        String key = base + "\u0000" + includes + "\u0000" + excludes;
+        List<File> files = scans.get(key);
+        if (files == null) {
+            files = doScan(base, includes, excludes);
+            scans.put(key, files);
+        }
+        return files;
+    }
+
+    private static List<File> doScan(File base, List<String> includes, List<String> excludes) {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(base);
+        if (!includes.isEmpty()) {
+            scanner.setIncludes(includes.toArray(new String[0]));
+        }
+        if (!excludes.isEmpty()) {
+            scanner.setExcludes(excludes.toArray(new String[0]));
+        }
+        scanner.addDefaultExcludes();
+        scanner.scan();
+
+        String[] relative = scanner.getIncludedFiles();
+        for (int i = 0; i < relative.length; i++) {
+            relative[i] = relative[i].replace(File.separatorChar, '/');
+        }
+        Arrays.sort(relative);
+        List<File> files = new ArrayList<>(relative.length);
+        for (String path : relative) {
+            files.add(new File(base, path));
+        }
+        return Collections.unmodifiableList(files);
+    }
+}
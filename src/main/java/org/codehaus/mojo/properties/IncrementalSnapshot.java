@@ -0,0 +1,370 @@
+package org.codehaus.mojo.properties;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The result of one execution of a reader goal, kept under <code>target/</code> so that the next build can skip the
+ * execution when none of its inputs has changed.
+ *
+ * The inputs are fingerprinted with SHA-256: the goal adds its configuration and the content of its sources, and the
+ * incoming project properties are added too. While resolving, the names looked up outside the project properties
+ * (system properties and <code>env.*</code>) are recorded, and their values at the time are part of the stored
+ * fingerprint. On the next build the same names are looked up again, so changing a referenced system property or
+ * environment variable invalidates the snapshot while unrelated ones do not.
+ *
+ * The snapshot holds the content digest of every source and the properties that the execution added or changed, in a
+ * small binary file.
+ *
+ * @author mykelalvis
+ */
+final class IncrementalSnapshot {
+    /**
+     * The environment variables, only asked for when a snapshot exists.
+     */
+    interface Environment {
+        Properties get() throws IOException;
+    }
+
+    private static final int MAGIC = 0x50524f50;
+
+    private static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path file;
+
+    private final MessageDigest inputs;
+
+    private byte[] inputsDigest;
+
+    private final Set<String> lookups = Collections.synchronizedSet(new TreeSet<>());
+
+    /* Content digests of the sources, by absolute path */
+    private final Map<String, byte[]> sources = new LinkedHashMap<>();
+
+    private Map<String, byte[]> previousSources;
+
+    private IncrementalSnapshot(Path file) {
+        this.file = file;
+        this.inputs = sha256();
+    }
+
+    /**
+     * @param directory where snapshots are kept, e.g. <code>${project.build.directory}/properties-maven-plugin</code>
+     * @param goal the goal taking the snapshot
+     * @param execution the current execution, may be <code>null</code> (e.g. in tests)
+     * @return a snapshot with no inputs yet
+     */
+    static IncrementalSnapshot forExecution(File directory, String goal, MojoExecution execution) {
+        String id = execution != null && execution.getExecutionId() != null ? execution.getExecutionId() : "default";
+        return new IncrementalSnapshot(new File(directory, goal + '-' + id + ".snapshot").toPath());
+    }
+
+    /**
+     * Adds a configuration value to the fingerprint.
+     *
+     * @param value the value, may be <code>null</code>
+     * @return this snapshot
+     */
+    IncrementalSnapshot addInput(Object value) {
+        update(inputs, value == null ? null : value.toString());
+        return this;
+    }
+
+    /**
+     * Adds a source file, by path and content, to the fingerprint. A missing file is recorded as missing.
+     *
+     * @param source the file
+     * @return this snapshot
+     * @throws IOException if the file exists but cannot be read
+     */
+    IncrementalSnapshot addFile(File source) throws IOException {
+        return addFile(source, true);
+    }
+
+    /**
+     * Adds a source file, by path and content, to the fingerprint.
+     *
+     * @param source the file
+     * @param mayHaveChanged <code>false</code> when the build knows the file is unchanged since the previous build
+     *     (see <code>BuildContext.hasDelta</code>), in which case the digest stored by that build is reused instead of
+     *     reading the file
+     * @return this snapshot
+     * @throws IOException if the file exists but cannot be read
+     */
+    IncrementalSnapshot addFile(File source, boolean mayHaveChanged) throws IOException {
+        String path = source.getAbsolutePath();
+        update(inputs, path);
+        byte[] digest = mayHaveChanged ? null : previousSources().get(path);
+        if (digest == null && source.isFile()) {
+            MessageDigest content = sha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(source.toPath())) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    content.update(buffer, 0, n);
+                }
+            }
+            digest = content.digest();
+        }
+        if (digest == null) {
+            update(inputs, null);
+        } else {
+            inputs.update(digest);
+            sources.put(path, digest);
+        }
+        return this;
+    }
+
+    private Map<String, byte[]> previousSources() throws IOException {
+        if (previousSources == null) {
+            previousSources = new HashMap<>();
+            if (Files.isRegularFile(file)) {
+                long limit = Files.size(file);
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                        readBytes(in, limit);
+                        for (int i = in.readInt(); i > 0; i--) {
+                            previousSources.put(readString(in, limit), readBytes(in, limit));
+                        }
+                    }
+                } catch (EOFException e) {
+                    previousSources.clear();
+                }
+            }
+        }
+        return previousSources;
+    }
+
+    /**
+     * Adds every entry of the properties to the fingerprint, independently of their iteration order.
+     *
+     * @param properties the properties, typically the project properties before the execution
+     * @return this snapshot
+     */
+    IncrementalSnapshot addProperties(Properties properties) {
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            sorted.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+        inputs.update(intBytes(sorted.size()));
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            update(inputs, entry.getKey());
+            update(inputs, entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * @return the set the resolver records external lookups into
+     */
+    Set<String> getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Applies the stored result to <code>target</code> if it was produced from the same inputs.
+     *
+     * @param target the project properties
+     * @param environment the environment variables
+     * @return the number of properties applied, or <code>-1</code> if the snapshot is missing, unreadable or stale
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    int restore(Properties target, Properties environment) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return -1;
+        }
+        long limit = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return -1;
+            }
+            byte[] stored = readBytes(in, limit);
+            for (int i = in.readInt(); i > 0; i--) {
+                readString(in, limit);
+                readBytes(in, limit);
+            }
+            List<String> names = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                names.add(readString(in, limit));
+            }
+            if (!Arrays.equals(stored, fingerprint(names, environment))) {
+                return -1;
+            }
+            Map<String, String> delta = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                delta.put(readString(in, limit), readString(in, limit));
+            }
+            target.putAll(delta);
+            return delta.size();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Applies the stored result like {@link #restore(Properties, Properties)} and logs the outcome. A snapshot that
+     * cannot be read is ignored, so that the goal executes as usual.
+     *
+     * @param target the project properties
+     * @param environment the environment variables
+     * @param log the log of the goal
+     * @return <code>true</code> if the stored result was applied and the goal can be skipped
+     */
+    boolean restore(Properties target, Environment environment, Log log) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+            int restored = restore(target, environment.get());
+            if (restored < 0) {
+                return false;
+            }
+            log.info("Inputs are unchanged, applied " + restored + " property(ies) from the " + this);
+            return true;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable " + this + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Stores the properties that the execution added or changed.
+     *
+     * @param before a copy of the project properties taken before the execution
+     * @param after the project properties after the execution
+     * @param environment the environment variables
+     * @throws IOException if the snapshot cannot be written
+     */
+    void store(Properties before, Properties after, Properties environment) throws IOException {
+        List<String> names;
+        synchronized (lookups) {
+            names = new ArrayList<>(lookups);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] fingerprint = fingerprint(names, environment);
+            out.writeInt(fingerprint.length);
+            out.write(fingerprint);
+            out.writeInt(sources.size());
+            for (Map.Entry<String, byte[]> source : sources.entrySet()) {
+                writeString(out, source.getKey());
+                out.writeInt(source.getValue().length);
+                out.write(source.getValue());
+            }
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(out, name);
+            }
+            List<String> changed = new ArrayList<>();
+            for (String key : after.stringPropertyNames()) {
+                if (!Objects.equals(before.getProperty(key), after.getProperty(key))) {
+                    changed.add(key);
+                }
+            }
+            out.writeInt(changed.size());
+            for (String key : changed) {
+                writeString(out, key);
+                writeString(out, after.getProperty(key));
+            }
+        }
+        Files.createDirectories(file.getParent());
+        ContentStore.writeAtomically(file, bytes.toByteArray());
+    }
+
+    private byte[] fingerprint(List<String> names, Properties environment) {
+        synchronized (inputs) {
+            if (inputsDigest == null) {
+                inputsDigest = inputs.digest();
+            }
+        }
+        MessageDigest digest = sha256();
+        digest.update(inputsDigest);
+        for (String name : names) {
+            update(digest, name);
+            update(digest, System.getProperty(name));
+            if (name.startsWith("env.")) {
+                update(digest, environment == null ? null : environment.getProperty(name.substring(4)));
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(intBytes(-1));
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(intBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+
+    /* Length prefixed UTF-8, as writeUTF is limited to 64k */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        return new String(readBytes(in, limit), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, long limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > limit) {
+            /* a damaged snapshot is treated as stale */
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public String toString() {
+        return "snapshot " + file;
+    }
+}
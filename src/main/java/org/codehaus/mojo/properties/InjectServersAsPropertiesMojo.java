@@ -7,14 +7,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Properties;
+import java.util.TreeSet;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -25,12 +33,11 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Server;
 import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
 
-import static java.util.stream.Collectors.joining;
-
 /**
  * The read-project-properties goal reads property files and URLs and stores the properties as project properties. It
  * serves as an alternate to specifying properties in pom.xml. It is especially useful when making properties defined in
@@ -48,6 +55,9 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
     @Parameter(defaultValue = "${settings}", readonly = true, required = true)
     private Settings settings;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     @Parameter(defaultValue = "false", property = "properties.skip")
     private boolean skip;
 
@@ -95,11 +105,52 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
         this.keyPrefix = keyPrefix;
     }
 
+    /**
+     * When no <code>servers</code> are listed, only inject the servers whose properties are referenced by a
+     * <code>${...}</code> placeholder in the project properties, or whose id matches one of
+     * <code>serverPatterns</code>. Passwords of the other servers are not decrypted and their private key files are
+     * not read, and the joined forms of a private key are only built when referenced themselves. Requires a
+     * <code>keyPrefix</code> that contains the server id, such as <code>server.%s.</code>
+     */
+    @Parameter(defaultValue = "false", property = "properties.servers.lazy")
+    private boolean lazy;
+
+    /**
+     * Patterns (<code>*</code> and <code>?</code> wildcards) of server ids that are always injected in
+     * <code>lazy</code> mode, e.g. for servers only referenced by filtered resources.
+     */
+    @Parameter
+    private List<String> serverPatterns = new ArrayList<>();
+
+    /**
+     * Default scope for test access.
+     *
+     * @param lazy whether only referenced servers are injected
+     * @param serverPatterns ids of servers that are always injected
+     */
+    void setLazy(boolean lazy, List<String> serverPatterns) {
+        this.lazy = lazy;
+        this.serverPatterns = serverPatterns == null ? new ArrayList<>() : new ArrayList<>(serverPatterns);
+    }
+
     /**
      * Used for resolving property placeholders.
      */
     private final PropertyResolver resolver = new PropertyResolver();
 
+    private DecryptionCache decryption;
+
+    /* Only the build scoped cache, so that key material never outlives the build in a daemon */
+    private ParsedSourceCache privateKeys;
+
+    private ServerConfigurations configurations;
+
+    /* The keyPrefix compiled by compileKeyPrefix */
+    private String[] prefixParts;
+
+    /* The placeholders of the project properties in lazy mode, null otherwise */
+    private NavigableSet<String> placeholders;
+
     /** {@inheritDoc} */
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip || skipServers) {
@@ -107,30 +158,89 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
             return;
         }
         checkParameters();
+        decryption = DecryptionCache.forSession(session);
+        privateKeys = ParsedSourceCache.forSession(session);
+        configurations = ServerConfigurations.forSession(session);
 
         loadServers(); // loadFiles();
+        getLog().debug(decryption.toString());
+        getLog().debug("private keys: " + privateKeys);
 
         // loadUrls();
 
         resolveProperties();
     }
 
-    private void checkParameters() throws MojoExecutionException {}
+    private void checkParameters() throws MojoExecutionException {
+        prefixParts = compileKeyPrefix(keyPrefix);
+    }
 
     private void loadServers() throws MojoExecutionException {
         List<String> s = servers;
         if (servers == null) {
-            getLog().info("Using all servers");
             s = new ArrayList<>();
             for (Server ss : settings.getServers()) {
                 s.add(ss.getId());
             }
+            if (lazy) {
+                int all = s.size();
+                s = referencedServers(s);
+                getLog().info("Using " + s.size() + " referenced server(s) of " + all);
+            } else {
+                getLog().info("Using all servers");
+            }
         }
         for (int i = 0; i < s.size(); ++i) {
             load(s.get(i));
         }
     }
 
+    private List<String> referencedServers(List<String> ids) throws MojoExecutionException {
+        if (keyPrefix == null || !keyPrefix.contains("%")) {
+            throw new MojoExecutionException(
+                    "lazy needs a keyPrefix that contains the server id, such as server.%s. - not " + keyPrefix);
+        }
+        /* Sorted, so the placeholders starting with a server's prefix are found by one lookup */
+        placeholders = new TreeSet<>();
+        for (Object value : project.getProperties().values()) {
+            String text = String.valueOf(value);
+            for (int start = text.indexOf("${"); start >= 0; start = text.indexOf("${", start + 2)) {
+                int end = text.indexOf('}', start + 2);
+                if (end < 0) {
+                    break;
+                }
+                placeholders.add(text.substring(start + 2, end));
+            }
+        }
+        List<String> referenced = new ArrayList<>();
+        for (String id : ids) {
+            String prefix = prefix(id);
+            String placeholder = placeholders.ceiling(prefix);
+            if ((placeholder != null && placeholder.startsWith(prefix)) || matchesPattern(id)) {
+                referenced.add(id);
+            }
+        }
+        return referenced;
+    }
+
+    /* Whether a property is worth computing: always, unless lazy mode found no reference to it */
+    private boolean isReferenced(String id, StringBuilder key, int mark, String field) {
+        if (placeholders == null) {
+            return true;
+        }
+        key.setLength(mark);
+        return placeholders.contains(key.append(field).toString()) || matchesPattern(id);
+    }
+
+    private boolean matchesPattern(String id) {
+        for (String pattern : serverPatterns) {
+            if (SelectorUtils.match(pattern, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void loadFiles() throws MojoExecutionException {
         //        for ( int i = 0; i < files.length; i++ )
         //        {
@@ -166,28 +276,34 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
         String id = resource.getId();
         getLog().info("Loading properties from " + id);
 
-        Properties properties = new Properties();
+        /* Every key of the server shares its prefix, so one builder is cut back to it for each field */
+        StringBuilder key = new StringBuilder(prefix(id));
+        int mark = key.length();
+        Map<String, String> properties = new HashMap<>();
         try {
-            setProperty(properties, key(id, "directoryPermissions"), resource.getDirectoryPermissions());
-            setProperty(properties, key(id, "filePermissions"), resource.getFilePermissions());
-            setProperty(properties, key(id, "id"), resource.getId());
-            setProperty(properties, key(id, "passphrase"), resource.getPassphrase());
-            setProperty(properties, key(id, "password"), resource.getPassword());
+            setProperty(properties, key, mark, "directoryPermissions", resource.getDirectoryPermissions());
+            setProperty(properties, key, mark, "filePermissions", resource.getFilePermissions());
+            setProperty(properties, key, mark, "id", resource.getId());
+            setProperty(properties, key, mark, "passphrase", resource.getPassphrase());
+            setProperty(properties, key, mark, "password", resource.getPassword());
             String pk = resource.getPrivateKey();
-            setProperty(properties, key(id, "privateKey"), pk);
+            setProperty(properties, key, mark, "privateKey", pk);
             if (pk != null) {
                 Path pkPath = Paths.get(pk);
-                if (Files.isRegularFile(pkPath)) {
+                boolean joined = isReferenced(id, key, mark, "privateKeyJoined");
+                boolean joinedNL = isReferenced(id, key, mark, "privateKeyJoinedNL");
+                if ((joined || joinedNL) && Files.isRegularFile(pkPath)) {
                     try {
-                        List<String> pkLines = Files.readAllLines(pkPath);
-                        setProperty(
-                                properties,
-                                key(id, "privateKeyJoined"),
-                                pkLines.stream().collect(joining("\\n")));
-                        setProperty(
-                                properties,
-                                key(id, "privateKeyJoinedNL"),
-                                pkLines.stream().collect(joining("\n")));
+                        Map<String, String> joinedKey = privateKeys.get(
+                                pkPath.toFile(), "privateKey", InjectServersAsPropertiesMojo::joinLines);
+                        /* Key material is never passed to the dispatcher, nor held in its cache */
+                        if (joined) {
+                            putProperty(properties, key, mark, "privateKeyJoined", joinedKey.get("privateKeyJoined"));
+                        }
+                        if (joinedNL) {
+                            putProperty(
+                                    properties, key, mark, "privateKeyJoinedNL", joinedKey.get("privateKeyJoinedNL"));
+                        }
                     } catch (IOException e) {
                         if (quiet) {
                             getLog().info("Quietly ignoring read error of " + pk);
@@ -198,26 +314,118 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
                 }
             }
 
-            setProperty(properties, key(id, "username"), resource.getUsername());
-            //            setProperty(properties,key("configuration"), resource.getConfiguration());
+            setProperty(properties, key, mark, "username", resource.getUsername());
+            for (Map.Entry<String, String> entry : configurations.get(resource).entrySet()) {
+                setProperty(properties, key, mark, entry.getKey(), entry.getValue());
+            }
         } catch (SecDispatcherException e) {
             throw new MojoExecutionException("Failed through decrypt", e);
         }
 
-        Properties projectProperties = project.getProperties();
-        for (String key : properties.stringPropertyNames()) {
-            projectProperties.put(key, properties.get(key));
+        project.getProperties().putAll(properties);
+    }
+
+    /**
+     * Joins the lines of a key file, split as {@link Files#readAllLines(Path)} splits them, by a literal
+     * <code>\n</code> (<code>privateKeyJoined</code>) and by line feeds (<code>privateKeyJoinedNL</code>), building
+     * both in one pass over the file.
+     *
+     * @param file the key file
+     * @return both joined forms
+     * @throws IOException if the file cannot be read or is not UTF-8
+     */
+    static Map<String, String> joinLines(Path file) throws IOException {
+        /* Decoding reports malformed input, as readAllLines does */
+        CharBuffer text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+        int n = text.length();
+        StringBuilder escaped = new StringBuilder(n + 64);
+        StringBuilder lines = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\n') {
+                if (c == '\r' && i + 1 < n && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                /* A terminator ends a line; only a following line needs a separator */
+                if (i + 1 < n) {
+                    escaped.append("\\n");
+                    lines.append('\n');
+                }
+            } else {
+                escaped.append(c);
+                lines.append(c);
+            }
         }
+        Map<String, String> joined = new HashMap<>(4);
+        joined.put("privateKeyJoined", escaped.toString());
+        joined.put("privateKeyJoinedNL", lines.toString());
+        return joined;
     }
 
-    private void setProperty(Properties p, String key, String val) throws SecDispatcherException {
+    private void setProperty(Map<String, String> p, StringBuilder key, int mark, String field, String val)
+            throws SecDispatcherException {
         if (val != null) {
-            p.setProperty(key, secDispatcher.decrypt(val));
+            putProperty(p, key, mark, field, decryption.decrypt(secDispatcher, val));
         }
     }
 
-    private String key(String id, String key) {
-        return keyPrefix == null ? key : String.format(keyPrefix, id) + key;
+    private static void putProperty(Map<String, String> p, StringBuilder key, int mark, String field, String val) {
+        if (val != null) {
+            key.setLength(mark);
+            p.put(key.append(field).toString(), val);
+        }
+    }
+
+    /**
+     * Splits a <code>keyPrefix</code> around its <code>%s</code> conversions, so that the prefix of a server is built
+     * by concatenation rather than by parsing the pattern again for every server.
+     *
+     * @param pattern the <code>keyPrefix</code>, may be <code>null</code>
+     * @return the literal parts, two when the pattern has one <code>%s</code> and one when it has none, or
+     *     <code>null</code> if the pattern uses anything but <code>%s</code>, <code>%%</code> and <code>%n</code>, or
+     *     more than one <code>%s</code>, and needs {@link String#format} (which fails for a second <code>%s</code>, as
+     *     there is only the server id to format)
+     */
+    static String[] compileKeyPrefix(String pattern) {
+        if (pattern == null) {
+            return new String[] {""};
+        }
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                part.append(c);
+                continue;
+            }
+            char conversion = ++i < pattern.length() ? pattern.charAt(i) : 0;
+            if (conversion == 's') {
+                if (!parts.isEmpty()) {
+                    return null;
+                }
+                parts.add(part.toString());
+                part.setLength(0);
+            } else if (conversion == '%') {
+                part.append('%');
+            } else if (conversion == 'n') {
+                part.append(System.lineSeparator());
+            } else {
+                return null;
+            }
+        }
+        parts.add(part.toString());
+        return parts.toArray(new String[0]);
+    }
+
+    /* The keyPrefix of a server; every key of the server starts with it */
+    private String prefix(String id) {
+        if (prefixParts == null) {
+            return String.format(keyPrefix, id);
+        }
+        if (prefixParts.length == 1) {
+            return prefixParts[0];
+        }
+        return prefixParts[0] + id + prefixParts[1];
     }
 
     private void loadProperties(Resource resource) throws MojoExecutionException {
@@ -330,6 +538,17 @@ public class InjectServersAsPropertiesMojo extends AbstractMojo {
         this.project = project;
     }
 
+    /**
+     * Default scope for test access.
+     *
+     * @param settings The settings holding the servers.
+     * @param secDispatcher Decrypts their secrets.
+     */
+    void setSettings(Settings settings, SecDispatcher secDispatcher) {
+        this.settings = settings;
+        this.secDispatcher = secDispatcher;
+    }
+
     private abstract static class Resource {
         private InputStream stream;
 
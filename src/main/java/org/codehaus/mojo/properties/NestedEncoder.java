@@ -0,0 +1,202 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes properties as nested objects, splitting keys at dots: <code>a.b.c=v</code> becomes
+ * <code>{"a": {"b": {"c": "v"}}}</code>.
+ *
+ * A key that has a value cannot also be an object, so keys below it are kept dotted in the enclosing object:
+ * <code>a=x</code> and <code>a.b=y</code> give <code>{"a": "x", "a.b": "y"}</code>. The keys are visited once, in
+ * dotted order, in which every object's members are contiguous, so objects are opened and closed as the keys go by.
+ * All values are written as strings.
+ *
+ * @author mykelalvis
+ */
+abstract class NestedEncoder implements PropertiesEncoder {
+    /* Besides the C0 controls: DEL, NEL, the line and paragraph separators and the byte order mark */
+    private static final String ALSO_ESCAPED = "\u007f\u0085\u2028\u2029\ufeff";
+
+    public void encode(SortedProperties properties, Writer out) throws IOException {
+        List<String> open = new ArrayList<>();
+        /* Whether the next member of each open object, the root first, is its first one */
+        List<Boolean> first = new ArrayList<>();
+        first.add(true);
+        List<String> path = new ArrayList<>();
+        begin(out);
+        for (String key : properties.keys()) {
+            path.clear();
+            int nameStart = 0;
+            for (int dot = key.indexOf('.'); dot >= 0; dot = key.indexOf('.', dot + 1)) {
+                if (properties.containsKey(key.substring(0, dot))) {
+                    break;
+                }
+                path.add(key.substring(nameStart, dot));
+                nameStart = dot + 1;
+            }
+            int common = 0;
+            while (common < open.size()
+                    && common < path.size()
+                    && open.get(common).equals(path.get(common))) {
+                common++;
+            }
+            while (open.size() > common) {
+                endObject(out, open.size());
+                open.remove(open.size() - 1);
+                first.remove(first.size() - 1);
+            }
+            while (open.size() < path.size()) {
+                String name = path.get(open.size());
+                startObject(out, open.size(), first.set(open.size(), false), name);
+                open.add(name);
+                first.add(true);
+            }
+            member(out, open.size(), first.set(open.size(), false), key.substring(nameStart), properties.get(key));
+        }
+        while (!open.isEmpty()) {
+            endObject(out, open.size());
+            open.remove(open.size() - 1);
+            first.remove(first.size() - 1);
+        }
+        end(out, properties.size() == 0);
+    }
+
+    abstract void begin(Writer out) throws IOException;
+
+    /**
+     * @param depth the depth of the enclosing object, 0 for the root
+     * @param first whether this is the first member of the enclosing object
+     */
+    abstract void startObject(Writer out, int depth, boolean first, String name) throws IOException;
+
+    /**
+     * @param depth the depth of the object, 1 for the members of the root
+     */
+    abstract void endObject(Writer out, int depth) throws IOException;
+
+    abstract void member(Writer out, int depth, boolean first, String name, String value) throws IOException;
+
+    abstract void end(Writer out, boolean empty) throws IOException;
+
+    static void indent(Writer out, int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.write("  ");
+        }
+    }
+
+    /* A double quoted string, in the escapes JSON and YAML have in common */
+    static void quote(Writer out, String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < ' ' || ALSO_ESCAPED.indexOf(c) >= 0) {
+                escape = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            out.write(s, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * Pretty printed JSON, two spaces per level.
+     */
+    static final class Json extends NestedEncoder {
+        void begin(Writer out) throws IOException {
+            out.write('{');
+        }
+
+        void startObject(Writer out, int depth, boolean first, String name) throws IOException {
+            memberName(out, depth, first, name);
+            out.write('{');
+        }
+
+        void endObject(Writer out, int depth) throws IOException {
+            out.write('\n');
+            indent(out, depth);
+            out.write('}');
+        }
+
+        void member(Writer out, int depth, boolean first, String name, String value) throws IOException {
+            memberName(out, depth, first, name);
+            quote(out, value);
+        }
+
+        private static void memberName(Writer out, int depth, boolean first, String name) throws IOException {
+            out.write(first ? "\n" : ",\n");
+            indent(out, depth + 1);
+            quote(out, name);
+            out.write(": ");
+        }
+
+        void end(Writer out, boolean empty) throws IOException {
+            out.write(empty ? "}\n" : "\n}\n");
+        }
+    }
+
+    /**
+     * Block style YAML, two spaces per level. Values are always double quoted, so they stay strings; names are only
+     * quoted when they would not read back as the same string.
+     */
+    static final class Yaml extends NestedEncoder {
+        private static final Pattern PLAIN = Pattern.compile("[A-Za-z_][A-Za-z0-9_.-]*");
+
+        /* Plain scalars that YAML 1.1 reads as booleans or null */
+        private static final Set<String> RESERVED =
+                new HashSet<>(Arrays.asList("y", "n", "yes", "no", "true", "false", "on", "off", "null", "~"));
+
+        void begin(Writer out) {}
+
+        void startObject(Writer out, int depth, boolean first, String name) throws IOException {
+            indent(out, depth);
+            name(out, name);
+            out.write(":\n");
+        }
+
+        void endObject(Writer out, int depth) {}
+
+        void member(Writer out, int depth, boolean first, String name, String value) throws IOException {
+            indent(out, depth);
+            name(out, name);
+            out.write(": ");
+            quote(out, value);
+            out.write('\n');
+        }
+
+        private static void name(Writer out, String name) throws IOException {
+            if (PLAIN.matcher(name).matches() && !RESERVED.contains(name.toLowerCase(Locale.ROOT))) {
+                out.write(name);
+            } else {
+                quote(out, name);
+            }
+        }
+
+        void end(Writer out, boolean empty) throws IOException {
+            if (empty) {
+                out.write("{}\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent reads concurrently and hands back their futures in submission order, so callers can merge the
+ * results in declaration order and keep precedence deterministic.
+ *
+ * @author mykelalvis
+ */
+final class OrderedParallelReader {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private OrderedParallelReader() {}
+
+    /**
+     * @param tasks the reads, in declaration order
+     * @param parallel <code>false</code> to run every task inline on the calling thread
+     * @return one future per task, in the same order as <code>tasks</code>
+     */
+    static <T> List<Future<T>> submitAll(List<Callable<T>> tasks, boolean parallel) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors() * 2);
+        if (!parallel || threads <= 1) {
+            for (Callable<T> task : tasks) {
+                FutureTask<T> f = new FutureTask<>(task);
+                f.run();
+                futures.add(f);
+            }
+            return futures;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreads());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for a read and unwraps its failure.
+     *
+     * @param future a future returned by {@link #submitAll(List, boolean)}
+     * @return the result of the read
+     * @throws IOException the exception thrown by the read, or an {@link InterruptedIOException} if interrupted
+     */
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading properties");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "properties-reader-" + pool + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
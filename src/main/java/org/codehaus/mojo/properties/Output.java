@@ -0,0 +1,51 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+
+/**
+ * An additional file written by the write goals, in one of the formats <code>properties</code>, <code>json</code>,
+ * <code>yaml</code>, <code>dotenv</code> or <code>shell</code>.
+ *
+ * @author mykelalvis
+ */
+public class Output {
+    /**
+     * Required file to write
+     */
+    private File file;
+
+    /**
+     * Format of the file, <code>properties</code> by default
+     */
+    private String format = "properties";
+
+    /**
+     * Encoding of the file; the encoding of the goal for the <code>properties</code> format, UTF-8 for the others by
+     * default
+     */
+    private String encoding;
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+}
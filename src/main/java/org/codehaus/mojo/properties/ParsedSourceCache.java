@@ -0,0 +1,277 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Build scoped cache of parsed local sources, shared by every module of a reactor build.
+ *
+ * Entries are keyed by the kind of parse (e.g. <code>json</code>, or <code>properties:UTF-8</code>) and the canonical
+ * path of the file, and are revalidated against the file's size and last-modified time with a single stat call on
+ * every lookup. Cached values are immutable. The cache is bounded both by number of files and by the estimated memory
+ * held, evicting the least recently used files first.
+ *
+ * A cache that outlives the build (see {@link DaemonCache}) can watch the directories of its files instead: entries
+ * are then dropped when the file system reports a change and are returned without a stat call otherwise. File systems
+ * that can only be watched by polling fall back to the stat call, as a polled change can arrive seconds late.
+ *
+ * @author mykelalvis
+ */
+final class ParsedSourceCache {
+    static final int MAX_FILES = 256;
+
+    static final long MAX_BYTES = 256L * 1024 * 1024;
+
+    /* Rough per entry and per String overhead, in bytes */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * Parses one file into a property map. The returned map is not modified afterwards.
+     */
+    interface Parser {
+        Map<String, String> parse(Path file) throws IOException;
+    }
+
+    private static final class Entry {
+        private final Path path;
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final Map<String, String> properties;
+
+        private final long weight;
+
+        /* The directory is watched, so the entry is valid until an event says otherwise */
+        private final boolean watched;
+
+        Entry(Path path, long size, long lastModified, Map<String, String> properties, boolean watched) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.properties = properties;
+            this.watched = watched;
+            long w = 0;
+            for (Map.Entry<String, String> e : properties.entrySet()) {
+                /* chars of key and value plus overhead */
+                w += 2L * (e.getKey().length() + e.getValue().length()) + ENTRY_OVERHEAD;
+            }
+            this.weight = w;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private volatile long maxBytes;
+
+    private final WatchService watcher;
+
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /* Number of watch events processed so far, guarded by entries */
+    private long events;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    ParsedSourceCache() {
+        this(MAX_BYTES, false);
+    }
+
+    /**
+     * @param maxBytes the estimated memory the cached properties may take
+     * @param watch <code>true</code> to watch the directories of cached files rather than stat the files on lookup
+     */
+    ParsedSourceCache(long maxBytes, boolean watch) {
+        this.maxBytes = maxBytes;
+        this.watcher = watch ? newWatchService() : null;
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            if (!service.getClass().getName().contains("Polling")) {
+                return service;
+            }
+            service.close();
+        } catch (IOException | UnsupportedOperationException e) {
+            // fall back to stat calls
+        }
+        return null;
+    }
+
+    void setMaxBytes(long maxBytes) {
+        synchronized (entries) {
+            this.maxBytes = maxBytes;
+            evict();
+        }
+    }
+
+    /**
+     * @param session the current session, may be <code>null</code> (e.g. in tests) in which case an unshared cache is
+     *     returned
+     * @return the cache shared by every execution in the session
+     */
+    static ParsedSourceCache forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new ParsedSourceCache();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        /* Keyed by the Class object so that different plugin versions in one reactor never share instances */
+        Object cache = data.get(ParsedSourceCache.class);
+        while (cache == null) {
+            data.set(ParsedSourceCache.class, null, new ParsedSourceCache());
+            cache = data.get(ParsedSourceCache.class);
+        }
+        return (ParsedSourceCache) cache;
+    }
+
+    /**
+     * @param file the source
+     * @param kind distinguishes different parses of the same file
+     * @param parser invoked when the file is not cached or has changed since it was cached
+     * @return the immutable parsed properties
+     * @throws IOException if the file cannot be read or parsed
+     */
+    Map<String, String> get(File file, String kind, Parser parser) throws IOException {
+        Path path = file.toPath().toRealPath();
+        String key = kind + ':' + path;
+        boolean watched = false;
+        long eventsBefore = 0;
+        if (watcher != null) {
+            synchronized (entries) {
+                processWatchEvents();
+                Entry entry = entries.get(key);
+                if (entry != null && entry.watched) {
+                    hits.incrementAndGet();
+                    return entry.properties;
+                }
+                /* registered before the stat, so any later change produces an event */
+                watched = watch(path.getParent());
+                eventsBefore = events;
+            }
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+                hits.incrementAndGet();
+                return entry.properties;
+            }
+        }
+        misses.incrementAndGet();
+        Map<String, String> properties = Collections.unmodifiableMap(parser.parse(path));
+        synchronized (entries) {
+            if (watched) {
+                /*
+                 * Another lookup may have drained an event for this file while it was parsed, before the entry
+                 * existed to be dropped. Only trust the watch when no event came in meanwhile, otherwise keep
+                 * checking size and mtime on lookup.
+                 */
+                processWatchEvents();
+                watched = events == eventsBefore;
+            }
+            Entry added = new Entry(path, size, lastModified, properties, watched);
+            Entry previous = entries.put(key, added);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += added.weight;
+            evict();
+        }
+        return properties;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > MAX_FILES || weight > maxBytes) && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    private boolean watch(Path directory) {
+        if (directory == null) {
+            return false;
+        }
+        if (watchedDirectories.containsValue(directory)) {
+            return true;
+        }
+        if (watchedDirectories.size() >= MAX_FILES) {
+            return false;
+        }
+        try {
+            WatchKey key = directory.register(
+                    watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private void processWatchEvents() {
+        WatchKey key;
+        while ((key = watcher.poll()) != null) {
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                events++;
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    invalidate(directory, true);
+                } else {
+                    invalidate(directory.resolve((Path) event.context()), false);
+                }
+            }
+            if (!key.reset()) {
+                events++;
+                watchedDirectories.remove(key);
+                invalidate(directory, true);
+            }
+        }
+    }
+
+    private void invalidate(Path path, boolean directory) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (directory ? path.equals(entry.path.getParent()) : path.equals(entry.path)) {
+                weight -= entry.weight;
+                it.remove();
+            }
+        }
+    }
+
+    public String toString() {
+        synchronized (entries) {
+            return "parsed source cache: " + hits.get() + " hit(s), " + misses.get() + " miss(es), " + entries.size()
+                    + " file(s), ~" + (weight >> 10) + " KiB";
+        }
+    }
+}
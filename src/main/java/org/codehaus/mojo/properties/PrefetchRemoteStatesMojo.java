@@ -0,0 +1,159 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+
+/**
+ * Downloads the remote states of every <code>read-json-as-properties</code> execution in the reactor, in parallel, so
+ * that later offline (<code>-o</code>) builds can read them from local disk. States are stored in the content store
+ * with their SHA-256 checksum, which is verified when they are read back; S3 objects are only downloaded when their
+ * ETag changed. States addressed by coordinates are resolved into the local repository.
+ *
+ * @author mykelalvis
+ */
+@Mojo(name = "prefetch", defaultPhase = LifecyclePhase.NONE, aggregator = true, threadSafe = true)
+public class PrefetchRemoteStatesMojo extends AbstractMojo {
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
+    /**
+     * Where downloaded content is kept between builds.
+     */
+    @Parameter(
+            defaultValue = "${settings.localRepository}/.cache/properties-maven-plugin",
+            property = "properties.cacheDirectory")
+    private File cacheDirectory;
+
+    @Parameter(defaultValue = "false", property = "properties.skip")
+    private boolean skip;
+
+    /* Reads one state to local disk */
+    private interface Prefetch {
+        /**
+         * @param store the content store
+         * @return the number of bytes downloaded, <code>0</code> when the local copy is current
+         */
+        long into(ContentStore store) throws IOException;
+    }
+
+    private static final class Result {
+        private long bytes;
+
+        private long millis;
+    }
+
+    /** {@inheritDoc} */
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skipping...");
+            return;
+        }
+        Map<String, Prefetch> prefetches =
+                RemoteStatePrefetch.collect(session, new RemoteStatePrefetch.Reads<Prefetch>() {
+                    @Override
+                    public Prefetch s3(S3RemoteState state) {
+                        return state::prefetch;
+                    }
+
+                    @Override
+                    public Prefetch artifactRepo(ArtifactRepoRemoteState state, MavenProject project) {
+                        if (state.getCoordinates() != null) {
+                            return store -> state.prefetch(
+                                    repositorySystem,
+                                    session.getRepositorySession(),
+                                    project.getRemoteProjectRepositories());
+                        }
+                        return store -> download(store, state);
+                    }
+                });
+        if (prefetches.isEmpty()) {
+            getLog().info("No remote states are configured in the reactor");
+            return;
+        }
+        ContentStore store = new ContentStore(cacheDirectory);
+        List<String> locations = new ArrayList<>(prefetches.keySet());
+        List<Callable<Result>> tasks = new ArrayList<>(locations.size());
+        for (String location : locations) {
+            Prefetch prefetch = prefetches.get(location);
+            tasks.add(() -> fetch(store, prefetch));
+        }
+        List<Future<Result>> results = OrderedParallelReader.submitAll(tasks, true);
+
+        long downloaded = 0;
+        int cached = 0;
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < locations.size(); i++) {
+            String location = locations.get(i);
+            try {
+                Result result = OrderedParallelReader.await(results.get(i));
+                downloaded += result.bytes;
+                if (result.bytes == 0) {
+                    cached++;
+                }
+                getLog().info(String.format(
+                        "%-10s %,12d bytes %,8d ms  %s",
+                        result.bytes == 0 ? "cached" : "downloaded", result.bytes, result.millis, location));
+            } catch (IOException | RuntimeException e) {
+                failures.add(location + ": " + e.getMessage());
+                getLog().error(String.format("%-10s %s: %s", "failed", location, e.getMessage()));
+            }
+        }
+        getLog().info(String.format(
+                "Prefetched %d remote state(s): %,d bytes downloaded, %d already cached, %d failed",
+                locations.size() - failures.size(), downloaded, cached, failures.size()));
+        if (!failures.isEmpty()) {
+            throw new MojoExecutionException(failures.size() + " remote state(s) could not be prefetched");
+        }
+    }
+
+    private static Result fetch(ContentStore store, Prefetch prefetch) throws Exception {
+        Result result = new Result();
+        long start = System.nanoTime();
+        result.bytes = prefetch.into(store);
+        result.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return result;
+    }
+
+    /* The artifact repository offers no conditional read, so the state is always downloaded */
+    private static long download(ContentStore store, ArtifactRepoRemoteState state) throws IOException {
+        byte[] content = state.readContents().getBytes(StandardCharsets.UTF_8);
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("fetched", Long.toString(System.currentTimeMillis()));
+        store.put(state.getLocation(), content, metadata);
+        return content.length;
+    }
+
+    /**
+     * Default scope for test access.
+     *
+     * @param session The test session.
+     * @param repositorySystem The repository system resolving states addressed by coordinates.
+     * @param cacheDirectory Where to store states.
+     */
+    void setSession(MavenSession session, RepositorySystem repositorySystem, File cacheDirectory) {
+        this.session = session;
+        this.repositorySystem = repositorySystem;
+        this.cacheDirectory = cacheDirectory;
+    }
+}
@@ -0,0 +1,44 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes a {@link SortedProperties} snapshot in one output format, in a single pass over its keys.
+ *
+ * @author mykelalvis
+ */
+interface PropertiesEncoder {
+    /**
+     * @param properties the snapshot
+     * @param out where to write, buffered and left open
+     * @throws IOException if the output cannot be written
+     */
+    void encode(SortedProperties properties, Writer out) throws IOException;
+
+    /**
+     * @param format <code>properties</code>, <code>json</code>, <code>yaml</code>, <code>dotenv</code> or
+     *     <code>shell</code>, in any case
+     * @return the encoder of the format, or <code>null</code> for an unknown format
+     */
+    static PropertiesEncoder forFormat(String format) {
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "properties":
+                return new PropertiesWriter("Properties");
+            case "json":
+                return new NestedEncoder.Json();
+            case "yaml":
+            case "yml":
+                return new NestedEncoder.Yaml();
+            case "dotenv":
+            case "env":
+                return new EnvironmentEncoder(false);
+            case "shell":
+            case "sh":
+                return new EnvironmentEncoder(true);
+            default:
+                return null;
+        }
+    }
+}
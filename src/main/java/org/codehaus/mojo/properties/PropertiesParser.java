@@ -0,0 +1,270 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads <code>.properties</code> sources without going through {@link java.util.Properties}.
+ *
+ * The whole source is read in one go (large files are memory-mapped), decoded once, with direct fast paths for
+ * ISO-8859-1 and UTF-8, and then parsed in place. The grammar is that of
+ * {@link java.util.Properties#load(java.io.Reader)}: <code>#</code>/<code>!</code> comments, <code>=</code>,
+ * <code>:</code> or whitespace separators, line continuations and the <code>\t \n \r \f \\uXXXX</code> escapes, so
+ * the result is the same as loading the source into a {@link java.util.Properties}.
+ *
+ * @author mykelalvis
+ */
+final class PropertiesParser {
+    /**
+     * Files at least this large are memory-mapped rather than read onto the heap.
+     */
+    static final long MAP_THRESHOLD = 1024 * 1024;
+
+    /* Rough length of a line, to size the target map from the source length */
+    private static final int BYTES_PER_ENTRY = 24;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private final char[] in;
+
+    private final int end;
+
+    private final Map<String, String> target;
+
+    /* Logical line being assembled; continuation lines are joined into it */
+    private char[] line = new char[256];
+
+    /* Scratch space for unescaping */
+    private char[] out = new char[256];
+
+    private int pos;
+
+    private PropertiesParser(char[] in, int off, int len, Map<String, String> target) {
+        this.in = in;
+        this.pos = off;
+        this.end = off + len;
+        this.target = target;
+    }
+
+    /**
+     * @param file the source
+     * @param encoding the source encoding
+     * @return the parsed properties
+     * @throws IOException if the file cannot be read or contains a malformed <code>\\uXXXX</code> escape
+     */
+    static Map<String, String> parse(Path file, String encoding) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // keep reading
+                }
+                bytes.flip();
+            }
+            return parse(bytes, encoding);
+        }
+    }
+
+    static Map<String, String> parse(ByteBuffer bytes, String encoding) throws IOException {
+        CharBuffer chars = decode(bytes, Charset.forName(encoding));
+        Map<String, String> target = new HashMap<>(Math.max(MIN_CAPACITY, chars.remaining() / BYTES_PER_ENTRY));
+        new PropertiesParser(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), target).run();
+        return target;
+    }
+
+    private static CharBuffer decode(ByteBuffer bytes, Charset charset) throws CharacterCodingException {
+        if (StandardCharsets.ISO_8859_1.equals(charset) || (StandardCharsets.UTF_8.equals(charset) && isAscii(bytes))) {
+            char[] chars = new char[bytes.remaining()];
+            for (int i = 0, p = bytes.position(); i < chars.length; i++, p++) {
+                chars[i] = (char) (bytes.get(p) & BYTE_MASK);
+            }
+            return CharBuffer.wrap(chars);
+        }
+        /* Same replacement behaviour as the InputStreamReader used by Properties.load */
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(bytes);
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        for (int p = bytes.position(), limit = bytes.limit(); p < limit; p++) {
+            if (bytes.get(p) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void run() throws IOException {
+        int len;
+        while ((len = readLine()) >= 0) {
+            int keyLen = 0;
+            int valueStart = len;
+            boolean hasSep = false;
+            boolean precedingBackslash = false;
+            while (keyLen < len) {
+                char c = line[keyLen];
+                if ((c == '=' || c == ':') && !precedingBackslash) {
+                    valueStart = keyLen + 1;
+                    hasSep = true;
+                    break;
+                } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                    valueStart = keyLen + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyLen++;
+            }
+            while (valueStart < len) {
+                char c = line[valueStart];
+                if (c != ' ' && c != '\t' && c != '\f') {
+                    if (!hasSep && (c == '=' || c == ':')) {
+                        hasSep = true;
+                    } else {
+                        break;
+                    }
+                }
+                valueStart++;
+            }
+            String key = unescape(0, keyLen);
+            String value = unescape(valueStart, len - valueStart);
+            target.put(key, value);
+        }
+    }
+
+    /**
+     * Assembles the next logical line into {@link #line}, following the rules of <code>Properties.LineReader</code>.
+     *
+     * @return the length of the line, or <code>-1</code> at the end of the input
+     */
+    private int readLine() {
+        int len = 0;
+        boolean skipWhiteSpace = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+
+        while (pos < end) {
+            char c = in[pos++];
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (len == 0 && (c == '#' || c == '!')) {
+                // comment, consume the rest of the line
+                while (pos < end) {
+                    c = in[pos++];
+                    if (c == '\r' || c == '\n') {
+                        break;
+                    }
+                }
+                skipWhiteSpace = true;
+                continue;
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (len == line.length) {
+                    line = Arrays.copyOf(line, len * 2);
+                }
+                line[len++] = c;
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (len == 0) {
+                skipWhiteSpace = true;
+            } else if (pos >= end) {
+                return precedingBackslash ? len - 1 : len;
+            } else if (precedingBackslash) {
+                // the backslash is not part of the line, and leading whitespace of the next line is skipped
+                len -= 1;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                if (c == '\r' && pos < end && in[pos] == '\n') {
+                    pos++;
+                }
+            } else {
+                return len;
+            }
+        }
+        if (len == 0) {
+            return -1;
+        }
+        return precedingBackslash ? len - 1 : len;
+    }
+
+    private String unescape(int off, int len) throws IOException {
+        int limit = off + len;
+        int first = off;
+        while (first < limit && line[first] != '\\') {
+            first++;
+        }
+        if (first == limit) {
+            return new String(line, off, len);
+        }
+        if (out.length < len) {
+            out = new char[len];
+        }
+        int outLen = first - off;
+        System.arraycopy(line, off, out, 0, outLen);
+        int i = first;
+        while (i < limit) {
+            char c = line[i++];
+            if (c == '\\') {
+                if (i == limit) {
+                    break;
+                }
+                c = line[i++];
+                if (c == 'u') {
+                    if (i + 4 > limit) {
+                        throw new IOException("Malformed \\uxxxx encoding.");
+                    }
+                    int value = 0;
+                    for (int j = 0; j < 4; j++) {
+                        char h = line[i++];
+                        if (!isAsciiHex(h)) {
+                            throw new IOException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + Character.digit(h, 16);
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            out[outLen++] = c;
+        }
+        return new String(out, 0, outLen);
+    }
+
+    private static boolean isAsciiHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
@@ -0,0 +1,187 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * Writes <code>.properties</code> files sorted and without a timestamp, so that unchanged properties give an unchanged
+ * file.
+ *
+ * The output is byte for byte what storing the properties with {@link Properties#store(Writer, String)}, dropping the
+ * date comment and sorting the lines gives: entries are escaped the same way (with non-ASCII characters written as
+ * they are, in the target encoding, and unmappable ones replaced), ordered as their escaped lines would sort, with
+ * the comment line in its sorted place and the platform line separator. The keys are escaped and sorted once and each
+ * entry is escaped straight into a reused line buffer, without the intermediate copies of the whole file.
+ *
+ * @author mykelalvis
+ */
+final class PropertiesWriter implements PropertiesEncoder {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /* Characters above '=' and below DEL are written as they are, except '\\' */
+    private static final char DEL = 0x7F;
+
+    private final String comment;
+
+    private char[] line = new char[256];
+
+    private int count;
+
+    /**
+     * @param comment a single line comment, written as <code>#comment</code>
+     */
+    PropertiesWriter(String comment) {
+        this.comment = comment;
+    }
+
+    public void encode(SortedProperties properties, Writer out) throws IOException {
+        String commentLine = "#" + comment;
+        boolean commented = false;
+        for (String key : properties.escapedKeys()) {
+            /* Escaped keys never start with '#', so the first character decides */
+            if (!commented && commentLine.compareTo(key) < 0) {
+                out.write(commentLine);
+                out.write(LINE_SEPARATOR);
+                commented = true;
+            }
+            count = 0;
+            append(key);
+            appendValue(properties.getEscaped(key));
+            append(LINE_SEPARATOR);
+            out.write(line, 0, count);
+        }
+        if (!commented) {
+            out.write(commentLine);
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /* The key escapes of Properties.store, followed by the separator */
+    static String escapeKey(String key) {
+        int plain = plainPrefix(key);
+        if (plain == key.length()) {
+            return key.concat("=");
+        }
+        StringBuilder sb = new StringBuilder(key.length() + 8);
+        sb.append(key, 0, plain);
+        for (int i = plain; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c > '=' && c < DEL) {
+                if (c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                    sb.append('\\').append(' ');
+                    break;
+                case '\t':
+                    sb.append('\\').append('t');
+                    break;
+                case '\n':
+                    sb.append('\\').append('n');
+                    break;
+                case '\r':
+                    sb.append('\\').append('r');
+                    break;
+                case '\f':
+                    sb.append('\\').append('f');
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    sb.append('\\').append(c);
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.append('=').toString();
+    }
+
+    /* The value escapes of Properties.store: as for keys, but only a leading space is escaped */
+    private void appendValue(String value) {
+        int plain = plainPrefix(value);
+        if (plain == value.length()) {
+            append(value);
+            return;
+        }
+        ensure(count + plain + (value.length() - plain) * 2);
+        value.getChars(0, plain, line, count);
+        count += plain;
+        for (int i = plain; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > '=' && c < DEL) {
+                if (c == '\\') {
+                    line[count++] = '\\';
+                }
+                line[count++] = c;
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                    if (i == 0) {
+                        line[count++] = '\\';
+                    }
+                    line[count++] = ' ';
+                    break;
+                case '\t':
+                    line[count++] = '\\';
+                    line[count++] = 't';
+                    break;
+                case '\n':
+                    line[count++] = '\\';
+                    line[count++] = 'n';
+                    break;
+                case '\r':
+                    line[count++] = '\\';
+                    line[count++] = 'r';
+                    break;
+                case '\f':
+                    line[count++] = '\\';
+                    line[count++] = 'f';
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    line[count++] = '\\';
+                    line[count++] = c;
+                    break;
+                default:
+                    line[count++] = c;
+            }
+        }
+    }
+
+    /* Length of the leading run of characters that are written as they are, spaces excepted */
+    private static int plainPrefix(String s) {
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c > '=' ? c == '\\' : c < ' ' || c == '=' || c == ':' || c == '#' || c == '!' || c == ' ') {
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private void append(String s) {
+        ensure(count + s.length());
+        s.getChars(0, s.length(), line, count);
+        count += s.length();
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > line.length) {
+            char[] grown = new char[Math.max(capacity, line.length * 2)];
+            System.arraycopy(line, 0, grown, 0, count);
+            line = grown;
+        }
+    }
+}
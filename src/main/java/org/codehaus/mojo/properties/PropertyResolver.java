@@ -20,9 +20,20 @@ package org.codehaus.mojo.properties;
  */
 
 import java.util.Properties;
+import java.util.Set;
 
 class PropertyResolver {
 
+    private Set<String> externalLookups;
+
+    /**
+     * @param externalLookups receives every key that is not found in the properties and so is looked up in the system
+     *     properties and the environment, or <code>null</code> to not record them
+     */
+    void setExternalLookups(Set<String> externalLookups) {
+        this.externalLookups = externalLookups;
+    }
+
     /**
      * Retrieves a property value, replacing values like ${token} using the Properties to look them up. Shamelessly
      * adapted from:
@@ -83,6 +94,10 @@ class PropertyResolver {
             String key, String defaultValue, Properties properties, Properties environment) {
         String value = properties.getProperty(key);
 
+        if (value == null && externalLookups != null) {
+            externalLookups.add(key);
+        }
+
         // try global environment
         if (value == null) {
             value = System.getProperty(key);
@@ -11,16 +11,20 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 import static java.util.stream.Collectors.joining;
 
@@ -35,6 +39,12 @@ public class ReadFileContentsAsPropertyMojo extends AbstractMojo {
     @Parameter(defaultValue = "${settings}", readonly = true, required = true)
     private Settings settings;
 
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Component
+    private BuildContext buildContext;
+
     @Parameter
     private Map<String, File> localPaths = new HashMap<>();
 
@@ -61,6 +71,28 @@ public class ReadFileContentsAsPropertyMojo extends AbstractMojo {
     @Parameter(defaultValue = "false")
     private boolean joinWithNL = false;
 
+    /**
+     * Skip reading and resolving when neither <code>localPaths</code>, the configuration, the incoming project
+     * properties nor the referenced system properties and environment variables have changed since the previous
+     * build, and apply the properties stored by that build instead.
+     * <p>
+     * Incremental IDE builds (e.g. m2e) always work this way, whatever this is set to, and trust the IDE's change
+     * detection instead of reading unchanged sources.
+     */
+    @Parameter(defaultValue = "false", property = "properties.incremental")
+    private boolean incremental;
+
+    /**
+     * Where <code>incremental</code> keeps its snapshots.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/properties-maven-plugin")
+    private File incrementalDirectory;
+
+    void setIncremental(boolean incremental, File incrementalDirectory) {
+        this.incremental = incremental;
+        this.incrementalDirectory = incrementalDirectory;
+    }
+
     /**
      * Used for resolving property placeholders.
      */
@@ -68,10 +100,58 @@ public class ReadFileContentsAsPropertyMojo extends AbstractMojo {
 
     /** {@inheritDoc} */
     public void execute() throws MojoExecutionException, MojoFailureException {
+        IncrementalSnapshot snapshot = snapshot();
+        if (snapshot != null && snapshot.restore(project.getProperties(), this::getSystemEnvVars, getLog())) {
+            return;
+        }
+        Properties before = new Properties();
+        if (snapshot != null) {
+            before.putAll(project.getProperties());
+            resolver.setExternalLookups(snapshot.getLookups());
+        }
 
         loadFiles();
 
         resolveProperties();
+        if (snapshot != null) {
+            store(snapshot, before);
+        }
+    }
+
+    private IncrementalSnapshot snapshot() throws MojoExecutionException {
+        boolean ide = isIncrementalIDEBuild();
+        if (!incremental && !ide) {
+            return null;
+        }
+        IncrementalSnapshot snapshot =
+                IncrementalSnapshot.forExecution(incrementalDirectory, "read-file-as-property", mojoExecution);
+        snapshot.addInput(joinWithNL).addInput(quiet).addProperties(project.getProperties());
+        try {
+            for (Entry<String, File> localPath : new TreeMap<>(localPaths).entrySet()) {
+                File file = localPath.getValue();
+                snapshot.addInput(localPath.getKey()).addFile(file, !ide || buildContext.hasDelta(file));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error fingerprinting sources: " + e.getMessage(), e);
+        }
+        return snapshot;
+    }
+
+    /* In the IDE every build takes a snapshot, and only sources with a delta are read to fingerprint them */
+    private boolean isIncrementalIDEBuild() {
+        return buildContext != null && buildContext.isIncremental();
+    }
+
+    void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    private void store(IncrementalSnapshot snapshot, Properties before) throws MojoExecutionException {
+        try {
+            snapshot.store(before, project.getProperties(), getSystemEnvVars());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing " + snapshot, e);
+        }
     }
 
     private void loadFiles() throws MojoExecutionException {
@@ -5,24 +5,31 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 import com.github.wnameless.json.flattener.JsonFlattener;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.eclipse.aether.RepositorySystem;
 import org.json.JSONObject;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
  * Copied from the read-project-properties goal
@@ -35,6 +42,18 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     @Parameter(defaultValue = "${settings}", readonly = true, required = true)
     private Settings settings;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Component
+    private BuildContext buildContext;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
     /*
      * It is possible to set defaults for everything if you have lots of remote
      * states
@@ -92,6 +111,28 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Where the <code>prefetch</code> goal stores remote states. In offline builds remote states are read from here
+     * instead of from their source.
+     */
+    @Parameter(
+            defaultValue = "${settings.localRepository}/.cache/properties-maven-plugin",
+            property = "properties.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * Keep a copy of every <code>s3Urls</code> object in <code>cacheDirectory</code>, with its ETag, so that it is only
+     * downloaded again when it changes. A version or ETag pinned object is only downloaded once. States may hold
+     * secrets: the copies are only readable by their owner, but are not encrypted.
+     */
+    @Parameter(defaultValue = "false", property = "properties.s3Urls.cache")
+    private boolean cacheS3Urls;
+
+    void setCacheS3Urls(boolean cacheS3Urls, File cacheDirectory) {
+        this.cacheS3Urls = cacheS3Urls;
+        this.cacheDirectory = cacheDirectory;
+    }
+
     /**
      * If the plugin should be quiet if any of the files was not found
      */
@@ -109,22 +150,127 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         this.keyPrefix = keyPrefix;
     }
 
+    /**
+     * Skip reading and resolving when neither <code>localPaths</code>, the configuration, the incoming project
+     * properties nor the referenced system properties and environment variables have changed since the previous
+     * build, and apply the properties stored by that build instead. Remote states (<code>s3Urls</code>,
+     * <code>artifactRepoRemoteStates</code>) are always read in full.
+     * <p>
+     * Incremental IDE builds (e.g. m2e) always work this way, whatever this is set to, and trust the IDE's change
+     * detection instead of reading unchanged sources.
+     */
+    @Parameter(defaultValue = "false", property = "properties.incremental")
+    private boolean incremental;
+
+    /**
+     * Where <code>incremental</code> keeps its snapshots.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/properties-maven-plugin")
+    private File incrementalDirectory;
+
+    void setIncremental(boolean incremental, File incrementalDirectory) {
+        this.incremental = incremental;
+        this.incrementalDirectory = incrementalDirectory;
+    }
+
+    /**
+     * Keep parsed <code>localPaths</code> and the content of remote states in memory for the lifetime of the Maven
+     * process, for the Maven daemon (mvnd) or other embedders that run many builds in one process. Local files are
+     * watched for changes; remote states are reused for <code>daemonCacheTtl</code> seconds and then read again.
+     */
+    @Parameter(defaultValue = "false", property = "properties.daemonCache")
+    private boolean daemonCache;
+
+    /**
+     * Seconds for which <code>daemonCache</code> serves remote states without reading them again.
+     */
+    @Parameter(defaultValue = "300", property = "properties.daemonCache.ttl")
+    private int daemonCacheTtl = DaemonCache.DEFAULT_TTL;
+
+    /**
+     * Estimated memory <code>daemonCache</code> may hold, in megabytes.
+     */
+    @Parameter(defaultValue = "256", property = "properties.daemonCache.maxMegabytes")
+    private int daemonCacheMaxMegabytes = 256;
+
     /**
      * Used for resolving property placeholders.
      */
     private final PropertyResolver resolver = new PropertyResolver();
 
+    /**
+     * Parsed local files, shared across the modules of the build.
+     */
+    private ParsedSourceCache cache;
+
+    private DaemonCache daemon;
+
     /** {@inheritDoc} */
     public void execute() throws MojoExecutionException, MojoFailureException {
         checkParameters();
 
+        IncrementalSnapshot snapshot = snapshot();
+        if (snapshot != null && snapshot.restore(project.getProperties(), this::getSystemEnvVars, getLog())) {
+            return;
+        }
+        Properties before = new Properties();
+        if (snapshot != null) {
+            before.putAll(project.getProperties());
+            resolver.setExternalLookups(snapshot.getLookups());
+        }
+
+        daemon = daemonCache ? DaemonCache.get(daemonCacheMaxMegabytes) : null;
+        cache = daemon != null ? daemon.getParsedSources() : ParsedSourceCache.forSession(session);
         loadFiles();
 
         loadUrls(s3RemoteStateDefaults);
 
         loadArtifactRepoResources(artifactRepoRemoteStateDefaults);
+        getLog().debug(daemon != null ? daemon.toString() : cache.toString());
 
         resolveProperties();
+        if (snapshot != null) {
+            store(snapshot, before);
+        }
+    }
+
+    private IncrementalSnapshot snapshot() throws MojoExecutionException {
+        boolean ide = isIncrementalIDEBuild();
+        if (!incremental && !ide) {
+            return null;
+        }
+        if (localPaths.length == 0) {
+            getLog().debug("Reading remote states, incremental is ignored");
+            return null;
+        }
+        IncrementalSnapshot snapshot =
+                IncrementalSnapshot.forExecution(incrementalDirectory, "read-json-as-properties", mojoExecution);
+        snapshot.addInput(keyPrefix).addInput(quiet).addProperties(project.getProperties());
+        try {
+            for (File localPath : localPaths) {
+                snapshot.addFile(localPath, !ide || buildContext.hasDelta(localPath));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error fingerprinting sources: " + e.getMessage(), e);
+        }
+        return snapshot;
+    }
+
+    /* In the IDE every build takes a snapshot, and only sources with a delta are read to fingerprint them */
+    private boolean isIncrementalIDEBuild() {
+        return buildContext != null && buildContext.isIncremental();
+    }
+
+    void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    private void store(IncrementalSnapshot snapshot, Properties before) throws MojoExecutionException {
+        try {
+            snapshot.store(before, project.getProperties(), getSystemEnvVars());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing " + snapshot, e);
+        }
     }
 
     private void checkParameters() throws MojoExecutionException {
@@ -147,19 +293,28 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
 
     private void loadFiles() throws MojoExecutionException {
         for (int i = 0; i < localPaths.length; i++) {
-            load(new LocalPathResource(localPaths[i]));
+            load(new LocalPathResource(localPaths[i], cache));
         }
     }
 
     private void loadArtifactRepoResources(ArtifactRepoRemoteState defaults) throws MojoExecutionException {
         for (int i = 0; i < artifactRepoRemoteStates.length; i++) {
-            load(new ArtifactRepoResource(artifactRepoRemoteStates[i], defaults, settings));
+            ArtifactRepoRemoteState state =
+                    Objects.requireNonNull(artifactRepoRemoteStates[i]).validate(defaults, settings);
+            /* States addressed by coordinates are cached by the local repository, which also works offline */
+            load(new ArtifactRepoResource(state, state.getCoordinates() != null ? null : remoteSources()));
         }
     }
 
+    private RemoteSources remoteSources() {
+        ContentStore offline = session != null && session.isOffline() ? new ContentStore(cacheDirectory) : null;
+        return new RemoteSources(offline, RemoteStatePrefetch.prefetched(session), daemon, daemonCacheTtl);
+    }
+
     private void loadUrls(S3RemoteState defaults) throws MojoExecutionException {
+        ContentStore store = cacheS3Urls ? new ContentStore(cacheDirectory) : null;
         for (int i = 0; i < s3Urls.length; i++) {
-            load(new S3UrlResource(s3Urls[i], defaults, settings));
+            load(new S3UrlResource(s3Urls[i], defaults, settings, remoteSources(), store));
         }
     }
 
@@ -175,11 +330,12 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         try {
             getLog().debug("Loading properties from " + resource);
 
-            final Properties stream = resource.getJSONObjectProperties();
+            final Map<String, String> stream = resource.getJSONObjectProperties();
 
             Properties projectProperties = project.getProperties();
-            for (String key : stream.stringPropertyNames()) {
-                projectProperties.put(keyPrefix != null ? keyPrefix + key : key, stream.getProperty(key));
+            for (Map.Entry<String, String> entry : stream.entrySet()) {
+                String key = entry.getKey();
+                projectProperties.put(keyPrefix != null ? keyPrefix + key : key, entry.getValue());
             }
         } catch (IOException e) {
             throw new MojoExecutionException("Error reading TFState from " + resource, e);
@@ -187,10 +343,14 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     }
 
     private void missing(TFStateResource resource) throws MojoExecutionException {
+        String reason = "";
+        if (resource instanceof RemoteStateResource && ((RemoteStateResource) resource).getFailure() != null) {
+            reason = ": " + ((RemoteStateResource) resource).getFailure().getMessage();
+        }
         if (quiet) {
-            getLog().info("Quiet processing - ignoring properties cannot be loaded from " + resource);
+            getLog().info("Quiet processing - ignoring properties cannot be loaded from " + resource + reason);
         } else {
-            throw new MojoExecutionException("Properties could not be loaded from " + resource);
+            throw new MojoExecutionException("Properties could not be loaded from " + resource + reason);
         }
     }
 
@@ -272,28 +432,49 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         this.settings = settings;
     }
 
-    private abstract static class TFStateResource {
-        private JSONObject stream;
-        private Properties properties = new Properties();
+    /**
+     * Default scope for test access.
+     *
+     * @param session The test session.
+     */
+    void setSession(MavenSession session) {
+        this.session = session;
+    }
 
+    /**
+     * Default scope for test access.
+     *
+     * @param repositorySystem The repository system resolving states addressed by coordinates.
+     */
+    void setRepositorySystem(RepositorySystem repositorySystem) {
+        this.repositorySystem = repositorySystem;
+    }
+
+    /**
+     * Default scope for test access.
+     *
+     * @param states The artifact repository states to set for tests.
+     */
+    void setArtifactRepoRemoteStates(ArtifactRepoRemoteState... states) {
+        this.artifactRepoRemoteStates = states;
+    }
+
+    private abstract static class TFStateResource {
         public abstract boolean canBeOpened();
 
         protected abstract String openJSONString() throws IOException;
 
-        public Properties getJSONObjectProperties() throws IOException {
-            if (stream == null) {
-                stream = new JSONObject(openJSONString());
-            }
-            String tt = JsonFlattener.flatten(stream.toString());
+        public Map<String, String> getJSONObjectProperties() throws IOException {
+            return flatten(openJSONString());
+        }
 
-            JSONObject jj = new JSONObject(tt);
+        static Map<String, String> flatten(String json) {
+            JSONObject jj = new JSONObject(JsonFlattener.flatten(new JSONObject(json).toString()));
 
-            SortedSet<String> s = new TreeSet<>(jj.keySet());
-            for (String key : s) {
-                Object v = jj.get(key);
-                properties.setProperty(key, v.toString());
+            Map<String, String> properties = new HashMap<>();
+            for (String key : jj.keySet()) {
+                properties.put(key, jj.get(key).toString());
             }
-
             return properties;
         }
     }
@@ -301,8 +482,11 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     private static class LocalPathResource extends TFStateResource {
         private final File file;
 
-        LocalPathResource(File file) {
+        private final ParsedSourceCache cache;
+
+        LocalPathResource(File file, ParsedSourceCache cache) {
             this.file = file;
+            this.cache = cache;
         }
 
         public boolean canBeOpened() {
@@ -313,49 +497,151 @@ public class ReadJSONObjectAsFlattenedPropertiesMojo extends AbstractMojo {
             return new String(Files.readAllBytes(file.toPath()));
         }
 
+        @Override
+        public Map<String, String> getJSONObjectProperties() throws IOException {
+            return cache.get(file, "json", path -> flatten(new String(Files.readAllBytes(path))));
+        }
+
         public String toString() {
             return "File: " + file;
         }
     }
 
-    private static class ArtifactRepoResource extends TFStateResource {
-        private ArtifactRepoRemoteState target;
+    private interface RemoteRead {
+        String read() throws IOException;
+    }
 
-        ArtifactRepoResource(ArtifactRepoRemoteState rs, ArtifactRepoRemoteState defaults, Settings settings)
-                throws MojoExecutionException {
-            this.target = Objects.requireNonNull(rs).validate(defaults, settings);
-        }
+    /**
+     * Where remote states come from: the content store when offline, a fetch started by the build extension, the
+     * daemon cache, or the source itself.
+     */
+    private static final class RemoteSources {
+        private final ContentStore offline;
 
-        @Override
-        public boolean canBeOpened() {
-            throw new RuntimeException("HELP HELP I'M BEING REPRESED");
+        private final Map<String, Future<String>> prefetched;
+
+        private final DaemonCache daemon;
+
+        private final int ttl;
+
+        RemoteSources(ContentStore offline, Map<String, Future<String>> prefetched, DaemonCache daemon, int ttl) {
+            this.offline = offline;
+            this.prefetched = prefetched;
+            this.daemon = daemon;
+            this.ttl = ttl;
         }
 
-        @Override
-        protected String openJSONString() throws IOException {
-            return target.readContents();
+        String read(String location, RemoteRead read) throws IOException {
+            if (offline != null) {
+                ContentStore.Entry entry = offline.get(location);
+                if (entry == null) {
+                    throw new IOException("Offline and not in the " + offline + ", run the prefetch goal online first");
+                }
+                return new String(entry.getContent(), StandardCharsets.UTF_8);
+            }
+            Future<String> fetch = prefetched != null ? prefetched.get(location) : null;
+            if (fetch != null) {
+                try {
+                    return OrderedParallelReader.await(fetch);
+                } catch (IOException | RuntimeException e) {
+                    // read again below, so the failure is reported like any other
+                }
+            }
+            if (daemon == null) {
+                return read.read();
+            }
+            byte[] content = daemon.remote(location, ttl, stale -> {
+                return new DaemonCache.Remote(read.read().getBytes(StandardCharsets.UTF_8), null, null);
+            });
+            return new String(content, StandardCharsets.UTF_8);
         }
     }
 
-    private static class S3UrlResource extends TFStateResource {
-        private final S3RemoteState rs;
+    private abstract static class RemoteStateResource extends TFStateResource {
+        /* null to always read from the source */
+        private final RemoteSources sources;
 
-        S3UrlResource(S3RemoteState rs, S3RemoteState defaults, Settings settings) throws MojoExecutionException {
-            this.rs = Objects.requireNonNull(rs, "s3 remote state must not be null")
-                    .validate(defaults, settings);
+        /* Read by canBeOpened(), so a state is fetched once */
+        private String json;
+
+        private IOException failure;
+
+        RemoteStateResource(RemoteSources sources) {
+            this.sources = sources;
         }
 
+        protected abstract String getLocation();
+
+        protected abstract String readContents() throws IOException;
+
         public boolean canBeOpened() {
             try {
                 openJSONString();
             } catch (IOException e) {
+                failure = e;
                 return false;
             }
             return true;
         }
 
+        IOException getFailure() {
+            return failure;
+        }
+
         protected String openJSONString() throws IOException {
-            return rs.readContents();
+            if (json == null) {
+                json = sources != null ? sources.read(getLocation(), this::readContents) : readContents();
+            }
+            return json;
+        }
+    }
+
+    private class ArtifactRepoResource extends RemoteStateResource {
+        private final ArtifactRepoRemoteState target;
+
+        ArtifactRepoResource(ArtifactRepoRemoteState target, RemoteSources sources) {
+            super(sources);
+            this.target = target;
+        }
+
+        protected String getLocation() {
+            return target.getLocation();
+        }
+
+        protected String readContents() throws IOException {
+            if (target.getCoordinates() != null) {
+                return target.readContents(
+                        repositorySystem, session.getRepositorySession(), project.getRemoteProjectRepositories());
+            }
+            return target.readContents();
+        }
+
+        public String toString() {
+            return target.getLocation();
+        }
+    }
+
+    private static class S3UrlResource extends RemoteStateResource {
+        private final S3RemoteState rs;
+
+        /* null when objects are not kept */
+        private final ContentStore store;
+
+        S3UrlResource(
+                S3RemoteState rs, S3RemoteState defaults, Settings settings, RemoteSources sources, ContentStore store)
+                throws MojoExecutionException {
+            super(sources);
+            this.store = store;
+            this.rs = Objects.requireNonNull(rs, "s3 remote state must not be null")
+                    .validate(defaults, settings);
+        }
+
+        protected String getLocation() {
+            return rs.getLocation();
+        }
+
+        protected String readContents() throws IOException {
+            return store != null ? rs.readContents(store) : rs.readContents();
         }
 
         public String toString() {
@@ -19,26 +19,38 @@ package org.codehaus.mojo.properties;
  * under the License.
  */
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
  * The read-project-properties goal reads property files and URLs and stores the properties as project properties. It
@@ -56,9 +68,22 @@ public class ReadPropertiesMojo extends AbstractMojo {
      */
     static final String DEFAULT_ENCODING = "ISO-8859-1";
 
+    private static final String ETAG = "ETag";
+
+    private static final String LAST_MODIFIED = "Last-Modified";
+
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Component
+    private BuildContext buildContext;
+
     /**
      * The properties files that will be used when reading properties.
      */
@@ -77,6 +102,33 @@ public class ReadPropertiesMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Directories of properties files to read, selected with <code>includes</code>/<code>excludes</code> patterns.
+     * Relative directories are resolved against the project base directory. The files of each set are read in the
+     * order of their relative paths, after any <code>files</code> and in the order the sets are declared, so later
+     * files take precedence. Scans are shared by the modules of a build and run concurrently when
+     * <code>parallel</code> is set.
+     *
+     * <pre>
+     * &lt;fileSets&gt;
+     *   &lt;fileSet&gt;
+     *     &lt;directory&gt;config&lt;/directory&gt;
+     *     &lt;includes&gt;
+     *       &lt;include&gt;**&#47;*.properties&lt;/include&gt;
+     *     &lt;/includes&gt;
+     *   &lt;/fileSet&gt;
+     * &lt;/fileSets&gt;
+     * </pre>
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter
+    private FileSet[] fileSets = new FileSet[0];
+
+    void setFileSets(FileSet[] fileSets) {
+        this.fileSets = fileSets == null ? new FileSet[0] : fileSets.clone();
+    }
+
     /**
      * The URLs that will be used when reading properties. These may be non-standard URLs of the form
      * <code>classpath:com/company/resource.properties</code>. Note that the type is not <code>URL</code> for this
@@ -99,6 +151,46 @@ public class ReadPropertiesMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Connect timeout in milliseconds for <code>urls</code>. <code>0</code> means no timeout.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "0", property = "properties.urls.connectTimeout")
+    private int connectTimeout;
+
+    /**
+     * Read timeout in milliseconds for <code>urls</code>. <code>0</code> means no timeout.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "0", property = "properties.urls.readTimeout")
+    private int readTimeout;
+
+    /**
+     * Keep a copy of every http(s) URL in <code>cacheDirectory</code> and revalidate it with a conditional GET
+     * (<code>If-None-Match</code>/<code>If-Modified-Since</code>), so an unchanged remote file costs a 304.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "false", property = "properties.urls.cache")
+    private boolean cacheUrls;
+
+    /**
+     * Where downloaded content is kept between builds.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(
+            defaultValue = "${settings.localRepository}/.cache/properties-maven-plugin",
+            property = "properties.cacheDirectory")
+    private File cacheDirectory;
+
+    void setCacheUrls(boolean cacheUrls, File cacheDirectory) {
+        this.cacheUrls = cacheUrls;
+        this.cacheDirectory = cacheDirectory;
+    }
+
     /**
      * If the plugin should be quiet if any of the files was not found
      */
@@ -149,25 +241,120 @@ public class ReadPropertiesMojo extends AbstractMojo {
         this.override = override;
     }
 
+    /**
+     * Fetch and parse all <code>files</code> or <code>urls</code> concurrently. They are still applied in the
+     * declared order, so precedence and <code>override</code> behave exactly as when reading them one at a time.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "false", property = "properties.parallel")
+    private boolean parallel;
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Skip reading and resolving when nothing that affects the result has changed since the previous build, and apply
+     * the properties stored by that build instead. The inputs are the content of <code>files</code> and
+     * <code>fileSets</code>, the configuration, the incoming project properties and the system properties and
+     * environment variables that were referenced. Executions reading <code>urls</code> always run in full, as remote
+     * content cannot be checked without fetching it.
+     * <p>
+     * Incremental IDE builds (e.g. m2e) always work this way, whatever this is set to, and trust the IDE's change
+     * detection instead of reading unchanged sources.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "false", property = "properties.incremental")
+    private boolean incremental;
+
+    /**
+     * Where <code>incremental</code> keeps its snapshots.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "${project.build.directory}/properties-maven-plugin")
+    private File incrementalDirectory;
+
+    void setIncremental(boolean incremental, File incrementalDirectory) {
+        this.incremental = incremental;
+        this.incrementalDirectory = incrementalDirectory;
+    }
+
     /**
      * Used for resolving property placeholders.
      */
     private final PropertyResolver resolver = new PropertyResolver();
 
+    /**
+     * Keep parsed <code>files</code> and the content of <code>urls</code> in memory for the lifetime of the Maven
+     * process, for the Maven daemon (mvnd) or other embedders that run many builds in one process. Local files are
+     * watched for changes, remote content is reused for <code>daemonCacheTtl</code> seconds and then revalidated.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "false", property = "properties.daemonCache")
+    private boolean daemonCache;
+
+    /**
+     * Seconds for which <code>daemonCache</code> serves remote content without asking the server.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "300", property = "properties.daemonCache.ttl")
+    private int daemonCacheTtl = DaemonCache.DEFAULT_TTL;
+
+    /**
+     * Estimated memory <code>daemonCache</code> may hold, in megabytes.
+     *
+     * @since 1.2.1.1
+     */
+    @Parameter(defaultValue = "256", property = "properties.daemonCache.maxMegabytes")
+    private int daemonCacheMaxMegabytes = 256;
+
+    void setDaemonCache(boolean daemonCache, int daemonCacheTtl) {
+        this.daemonCache = daemonCache;
+        this.daemonCacheTtl = daemonCacheTtl;
+    }
+
+    /**
+     * Parsed local files, shared across the modules of the build.
+     */
+    private ParsedSourceCache cache;
+
+    private DaemonCache daemon;
+
     /** {@inheritDoc} */
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (!skipLoadProperties) {
             checkParameters();
-            loadFiles();
+            daemon = daemonCache ? DaemonCache.get(daemonCacheMaxMegabytes) : null;
+            cache = daemon != null ? daemon.getParsedSources() : ParsedSourceCache.forSession(session);
+            List<File> localFiles = localFiles();
+            IncrementalSnapshot snapshot = snapshot(localFiles);
+            if (snapshot != null && snapshot.restore(project.getProperties(), this::getSystemEnvVars, getLog())) {
+                return;
+            }
+            Properties before = new Properties();
+            if (snapshot != null) {
+                before.putAll(project.getProperties());
+                resolver.setExternalLookups(snapshot.getLookups());
+            }
+            loadFiles(localFiles);
             loadUrls();
+            getLog().debug(daemon != null ? daemon.toString() : cache.toString());
             resolveProperties();
+            if (snapshot != null) {
+                store(snapshot, before);
+            }
         } else {
             getLog().warn("The properties are ignored");
         }
     }
 
     private void checkParameters() throws MojoExecutionException {
-        if (files.length > 0 && urls.length > 0) {
+        if ((files.length > 0 || fileSets.length > 0) && urls.length > 0) {
             throw new MojoExecutionException(
                     "Set files or URLs but not both - otherwise " + "no order of precedence can be guaranteed");
         }
@@ -178,49 +365,168 @@ public class ReadPropertiesMojo extends AbstractMojo {
         }
     }
 
-    private void loadFiles() throws MojoExecutionException {
-        for (File file : files) {
-            load(new FileResource(file));
+    private IncrementalSnapshot snapshot(List<File> localFiles) throws MojoExecutionException {
+        boolean ide = isIncrementalIDEBuild();
+        if (!incremental && !ide) {
+            return null;
+        }
+        if (urls.length > 0) {
+            getLog().debug("Reading urls, incremental is ignored");
+            return null;
+        }
+        IncrementalSnapshot snapshot =
+                IncrementalSnapshot.forExecution(incrementalDirectory, "read-project-properties", mojoExecution);
+        snapshot.addInput(encoding)
+                .addInput(keyPrefix)
+                .addInput(override)
+                .addInput(quiet)
+                .addInput(useDefaultValues)
+                .addProperties(project.getProperties());
+        try {
+            for (File file : localFiles) {
+                snapshot.addFile(file, !ide || buildContext.hasDelta(file));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error fingerprinting sources: " + e.getMessage(), e);
+        }
+        return snapshot;
+    }
+
+    /* In the IDE every build takes a snapshot, and only sources with a delta are read to fingerprint them */
+    private boolean isIncrementalIDEBuild() {
+        return buildContext != null && buildContext.isIncremental();
+    }
+
+    void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    private void store(IncrementalSnapshot snapshot, Properties before) throws MojoExecutionException {
+        try {
+            snapshot.store(before, project.getProperties(), getSystemEnvVars());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing " + snapshot, e);
+        }
+    }
+
+    private List<File> localFiles() throws MojoExecutionException {
+        List<File> localFiles = new ArrayList<>(Arrays.asList(files));
+        localFiles.addAll(scanFileSets());
+        return localFiles;
+    }
+
+    private void loadFiles(List<File> localFiles) throws MojoExecutionException {
+        List<Resource> resources = new ArrayList<>(localFiles.size());
+        for (File file : localFiles) {
+            resources.add(new FileResource(file));
+        }
+        load(resources);
+    }
+
+    private List<File> scanFileSets() throws MojoExecutionException {
+        FileSetScanner scanner = FileSetScanner.forSession(session);
+        List<File> directories = new ArrayList<>(fileSets.length);
+        List<Callable<List<File>>> scans = new ArrayList<>(fileSets.length);
+        for (FileSet fileSet : fileSets) {
+            if (fileSet.getDirectory() == null) {
+                throw new MojoExecutionException("A fileSet has no directory");
+            }
+            File directory = resolveDirectory(fileSet.getDirectory());
+            directories.add(directory);
+            scans.add(() -> directory.isDirectory()
+                    ? scanner.scan(directory, fileSet.getIncludes(), fileSet.getExcludes())
+                    : null);
+        }
+        List<Future<List<File>>> results = OrderedParallelReader.submitAll(scans, parallel);
+        List<File> matches = new ArrayList<>();
+        for (int i = 0; i < fileSets.length; i++) {
+            List<File> matched;
+            try {
+                matched = OrderedParallelReader.await(results.get(i));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error scanning " + directories.get(i), e);
+            }
+            if (matched == null) {
+                /* reported as a missing file, honouring quiet */
+                matches.add(directories.get(i));
+                continue;
+            }
+            getLog().debug(String.format("fileSet %s matched %d file(s)", directories.get(i), matched.size()));
+            matches.addAll(matched);
         }
+        return matches;
+    }
+
+    private File resolveDirectory(String directory) {
+        File file = new File(directory);
+        if (file.isAbsolute() || project.getBasedir() == null) {
+            return file;
+        }
+        return new File(project.getBasedir(), directory);
     }
 
     private void loadUrls() throws MojoExecutionException {
+        ContentStore store = cacheUrls ? new ContentStore(cacheDirectory) : null;
+        List<Resource> resources = new ArrayList<>(urls.length);
         for (String url : urls) {
-            load(new UrlResource(url));
+            resources.add(new UrlResource(url, connectTimeout, readTimeout, store, daemon, daemonCacheTtl));
+        }
+        load(resources);
+    }
+
+    private void load(List<Resource> resources) throws MojoExecutionException {
+        if (!parallel) {
+            for (Resource resource : resources) {
+                load(resource);
+            }
+            return;
+        }
+        List<Callable<Map<String, String>>> reads = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            reads.add(() -> resource.canBeOpened() ? resource.loadProperties(this.encoding, cache) : null);
+        }
+        List<Future<Map<String, String>>> results = OrderedParallelReader.submitAll(reads, true);
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            Map<String, String> properties;
+            try {
+                properties = OrderedParallelReader.await(results.get(i));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error reading properties from " + resource, e);
+            }
+            if (properties != null) {
+                loadProperties(resource, properties);
+            } else {
+                missing(resource);
+            }
         }
     }
 
     private void load(Resource resource) throws MojoExecutionException {
         if (resource.canBeOpened()) {
-            loadProperties(resource);
+            try {
+                loadProperties(resource, resource.loadProperties(this.encoding, cache));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Error reading properties from " + resource, e);
+            }
         } else {
             missing(resource);
         }
     }
 
-    private void loadProperties(Resource resource) throws MojoExecutionException {
-        try {
-            getLog().debug(String.format(
-                    "Loading properties from %s using encoding %s", resource.toString(), this.encoding));
-            try (InputStream stream = resource.getInputStream()) {
-                String effectivePrefix = "";
-                if (keyPrefix != null) {
-                    effectivePrefix = keyPrefix;
-                }
-                try (InputStreamReader streamReader = new InputStreamReader(stream, this.encoding)) {
-                    Properties properties = new Properties();
-                    properties.load(streamReader);
-                    Properties projectProperties = project.getProperties();
-                    for (String key : properties.stringPropertyNames()) {
-                        String propertyName = effectivePrefix + key;
-                        if (override || !projectProperties.containsKey(propertyName)) {
-                            projectProperties.put(propertyName, properties.get(key));
-                        }
-                    }
-                }
+    private void loadProperties(Resource resource, Map<String, String> properties) {
+        getLog().debug(String.format(
+                "Loading properties from %s using encoding %s", resource.toString(), this.encoding));
+        String effectivePrefix = "";
+        if (keyPrefix != null) {
+            effectivePrefix = keyPrefix;
+        }
+        Properties projectProperties = project.getProperties();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            String propertyName = effectivePrefix + entry.getKey();
+            if (override || !projectProperties.containsKey(propertyName)) {
+                projectProperties.put(propertyName, entry.getValue());
             }
-        } catch (IOException e) {
-            throw new MojoExecutionException("Error reading properties from " + resource, e);
         }
     }
 
@@ -325,18 +631,9 @@ public class ReadPropertiesMojo extends AbstractMojo {
     }
 
     private abstract static class Resource {
-        private InputStream stream;
-
         public abstract boolean canBeOpened();
 
-        protected abstract InputStream openStream() throws IOException;
-
-        public InputStream getInputStream() throws IOException {
-            if (stream == null) {
-                stream = openStream();
-            }
-            return stream;
-        }
+        public abstract Map<String, String> loadProperties(String encoding, ParsedSourceCache cache) throws IOException;
     }
 
     private static class FileResource extends Resource {
@@ -350,8 +647,9 @@ public class ReadPropertiesMojo extends AbstractMojo {
             return file.exists();
         }
 
-        protected InputStream openStream() throws IOException {
-            return new BufferedInputStream(new FileInputStream(file));
+        @Override
+        public Map<String, String> loadProperties(String encoding, ParsedSourceCache cache) throws IOException {
+            return cache.get(file, "properties:" + encoding, path -> PropertiesParser.parse(path, encoding));
         }
 
         public String toString() {
@@ -370,7 +668,32 @@ public class ReadPropertiesMojo extends AbstractMojo {
 
         private String classpathUrl;
 
-        UrlResource(String url) throws MojoExecutionException {
+        private final int connectTimeout;
+
+        private final int readTimeout;
+
+        private final ContentStore store;
+
+        private final DaemonCache daemon;
+
+        private final int daemonCacheTtl;
+
+        /* The body fetched by canBeOpened(), so a URL costs a single request */
+        private byte[] content;
+
+        UrlResource(
+                String url,
+                int connectTimeout,
+                int readTimeout,
+                ContentStore store,
+                DaemonCache daemon,
+                int daemonCacheTtl)
+                throws MojoExecutionException {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.store = store;
+            this.daemon = daemon;
+            this.daemonCacheTtl = daemonCacheTtl;
             if (url.startsWith(CLASSPATH_PREFIX)) {
                 String resource = url.substring(CLASSPATH_PREFIX.length());
                 if (resource.startsWith(SLASH_PREFIX)) {
@@ -395,15 +718,91 @@ public class ReadPropertiesMojo extends AbstractMojo {
                 return false;
             }
             try {
-                openStream();
+                content = fetch();
             } catch (IOException e) {
                 return false;
             }
             return true;
         }
 
-        protected InputStream openStream() throws IOException {
-            return new BufferedInputStream(url.openStream());
+        @Override
+        public Map<String, String> loadProperties(String encoding, ParsedSourceCache cache) throws IOException {
+            if (content == null) {
+                content = fetch();
+            }
+            return PropertiesParser.parse(ByteBuffer.wrap(content), encoding);
+        }
+
+        private byte[] fetch() throws IOException {
+            if (daemon == null) {
+                return fetch(null).getContent();
+            }
+            return daemon.remote(url.toString(), daemonCacheTtl, this::fetch);
+        }
+
+        /**
+         * Reads the whole body and closes the stream, which lets the JDK return HTTP connections to its keep-alive
+         * pool. http(s) URLs already known, in memory or in the store, are revalidated with a conditional GET and a
+         * 304 reuses the known content.
+         */
+        private DaemonCache.Remote fetch(DaemonCache.Remote stale) throws IOException {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            if (!(connection instanceof HttpURLConnection)) {
+                try (InputStream in = connection.getInputStream()) {
+                    return new DaemonCache.Remote(ContentStore.readFully(in), null, null);
+                }
+            }
+
+            HttpURLConnection http = (HttpURLConnection) connection;
+            String key = url.toString();
+            DaemonCache.Remote known = stale;
+            if (known == null && store != null) {
+                ContentStore.Entry cached = store.get(key);
+                if (cached != null) {
+                    known = new DaemonCache.Remote(
+                            cached.getContent(), cached.getMetadata(ETAG), cached.getMetadata(LAST_MODIFIED));
+                }
+            }
+            if (known != null) {
+                if (known.getEtag() != null) {
+                    http.setRequestProperty("If-None-Match", known.getEtag());
+                }
+                if (known.getLastModified() != null) {
+                    http.setRequestProperty("If-Modified-Since", known.getLastModified());
+                }
+            }
+            int status = http.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && known != null) {
+                drain(http.getErrorStream());
+                return known;
+            }
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                drain(http.getErrorStream());
+                throw new IOException("HTTP " + status + " from " + url);
+            }
+            byte[] body;
+            try (InputStream in = http.getInputStream()) {
+                body = ContentStore.readFully(in);
+            }
+            String etag = http.getHeaderField(ETAG);
+            String lastModified = http.getHeaderField(LAST_MODIFIED);
+            if (store != null && status == HttpURLConnection.HTTP_OK) {
+                Map<String, String> metadata = new HashMap<>();
+                metadata.put(ETAG, etag);
+                metadata.put(LAST_MODIFIED, lastModified);
+                store.put(key, body, metadata);
+            }
+            return new DaemonCache.Remote(body, etag, lastModified);
+        }
+
+        private static void drain(InputStream in) throws IOException {
+            if (in != null) {
+                try (InputStream stream = in) {
+                    ContentStore.readFully(stream);
+                }
+            }
         }
 
         public String toString() {
@@ -2,22 +2,30 @@ package org.codehaus.mojo.properties;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
-import org.json.JSONObject;
+import org.sonatype.plexus.build.incremental.BuildContext;
 import org.tomlj.Toml;
 import org.tomlj.TomlParseError;
 import org.tomlj.TomlParseResult;
@@ -30,6 +38,15 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Component
+    private BuildContext buildContext;
+
     /* LATER ITEMS OVERRIDE EARLIER ITEMS */
     /**
      * The properties files that will be used when reading properties.
@@ -37,6 +54,10 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     @Parameter
     private File[] localPaths = new File[0];
 
+    /**
+     * Read <code>localPaths</code> as AWS style credentials/config INI files instead of TOML. Each
+     * <code>key = value</code> in a <code>[profile]</code> section becomes the property <code>profile.key</code>.
+     */
     @Parameter
     private boolean reformatAWSCreds = false;
 
@@ -46,6 +67,16 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
     @Parameter(defaultValue = "false", property = "properties.toml.skip")
     private boolean skipTOML;
 
+    /**
+     * Read and parse <code>localPaths</code> concurrently. Results are always merged in declaration order.
+     */
+    @Parameter(defaultValue = "false", property = "properties.parallel")
+    private boolean parallel;
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     public void setReformatAWSCreds(boolean reformatAWSCreds) {
         this.reformatAWSCreds = reformatAWSCreds;
     }
@@ -83,6 +114,41 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         this.keyPrefix = keyPrefix;
     }
 
+    /**
+     * Skip reading and resolving when neither <code>localPaths</code>, the configuration, the incoming project
+     * properties nor the referenced system properties and environment variables have changed since the previous
+     * build, and apply the properties stored by that build instead.
+     * <p>
+     * Incremental IDE builds (e.g. m2e) always work this way, whatever this is set to, and trust the IDE's change
+     * detection instead of reading unchanged sources.
+     */
+    @Parameter(defaultValue = "false", property = "properties.incremental")
+    private boolean incremental;
+
+    /**
+     * Where <code>incremental</code> keeps its snapshots.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/properties-maven-plugin")
+    private File incrementalDirectory;
+
+    void setIncremental(boolean incremental, File incrementalDirectory) {
+        this.incremental = incremental;
+        this.incrementalDirectory = incrementalDirectory;
+    }
+
+    /**
+     * Keep parsed <code>localPaths</code> in memory for the lifetime of the Maven process, for the Maven daemon (mvnd)
+     * or other embedders that run many builds in one process. Local files are watched for changes.
+     */
+    @Parameter(defaultValue = "false", property = "properties.daemonCache")
+    private boolean daemonCache;
+
+    /**
+     * Estimated memory <code>daemonCache</code> may hold, in megabytes.
+     */
+    @Parameter(defaultValue = "256", property = "properties.daemonCache.maxMegabytes")
+    private int daemonCacheMaxMegabytes = 256;
+
     /**
      * Used for resolving property placeholders.
      */
@@ -96,9 +162,60 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         }
         checkParameters();
 
-        loadFiles();
+        IncrementalSnapshot snapshot = snapshot();
+        if (snapshot != null && snapshot.restore(project.getProperties(), this::getSystemEnvVars, getLog())) {
+            return;
+        }
+        Properties before = new Properties();
+        if (snapshot != null) {
+            before.putAll(project.getProperties());
+            resolver.setExternalLookups(snapshot.getLookups());
+        }
+
+        DaemonCache daemon = daemonCache ? DaemonCache.get(daemonCacheMaxMegabytes) : null;
+        ParsedSourceCache cache = daemon != null ? daemon.getParsedSources() : ParsedSourceCache.forSession(session);
+        loadFiles(cache);
+        getLog().debug(daemon != null ? daemon.toString() : cache.toString());
 
         resolveProperties();
+        if (snapshot != null) {
+            store(snapshot, before);
+        }
+    }
+
+    private IncrementalSnapshot snapshot() throws MojoExecutionException {
+        boolean ide = isIncrementalIDEBuild();
+        if (!incremental && !ide) {
+            return null;
+        }
+        IncrementalSnapshot snapshot =
+                IncrementalSnapshot.forExecution(incrementalDirectory, "read-toml-as-properties", mojoExecution);
+        snapshot.addInput(reformatAWSCreds).addInput(keyPrefix).addInput(quiet).addProperties(project.getProperties());
+        try {
+            for (File localPath : localPaths) {
+                snapshot.addFile(localPath, !ide || buildContext.hasDelta(localPath));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error fingerprinting sources: " + e.getMessage(), e);
+        }
+        return snapshot;
+    }
+
+    /* In the IDE every build takes a snapshot, and only sources with a delta are read to fingerprint them */
+    private boolean isIncrementalIDEBuild() {
+        return buildContext != null && buildContext.isIncremental();
+    }
+
+    void setBuildContext(BuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
+    private void store(IncrementalSnapshot snapshot, Properties before) throws MojoExecutionException {
+        try {
+            snapshot.store(before, project.getProperties(), getSystemEnvVars());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing " + snapshot, e);
+        }
     }
 
     private void checkParameters() throws MojoExecutionException {
@@ -111,32 +228,55 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         }
     }
 
-    private void loadFiles() throws MojoExecutionException {
-        for (int i = 0; i < localPaths.length; i++) {
-            load(new LocalTOMLResource(localPaths[i], reformatAWSCreds));
+    private void loadFiles(ParsedSourceCache cache) throws MojoExecutionException {
+        List<TOMLResource> resources = new ArrayList<>(localPaths.length);
+        List<Callable<Map<String, String>>> reads = new ArrayList<>(localPaths.length);
+        for (File localPath : localPaths) {
+            TOMLResource resource = reformatAWSCreds
+                    ? new LocalAWSCredentialsResource(localPath, cache)
+                    : new LocalTOMLResource(localPath, cache);
+            resources.add(resource);
+            reads.add(() -> resource.canBeOpened() ? resource.getTOMLObjectProperties() : null);
         }
-    }
+        List<Future<Map<String, String>>> results = OrderedParallelReader.submitAll(reads, parallel);
 
-    private void load(TOMLResource resource) throws MojoExecutionException {
-        if (resource.canBeOpened()) {
-            loadProperties(resource);
-        } else {
-            missing(resource);
+        @SuppressWarnings("unchecked")
+        Map<String, String>[] loaded = new Map[resources.size()];
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < loaded.length; i++) {
+            try {
+                loaded[i] = OrderedParallelReader.await(results.get(i));
+            } catch (TOMLParseException e) {
+                for (String error : e.getErrors()) {
+                    errors.add(resources.get(i) + ": " + error);
+                }
+            } catch (IOException e) {
+                errors.add(resources.get(i) + ": " + e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                getLog().error(error);
+            }
+            throw new MojoExecutionException(errors.size() + " error(s) reading TOML sources, see the log for details");
         }
-    }
 
-    private void loadProperties(TOMLResource resource) throws MojoExecutionException {
-        try {
-            getLog().debug("Loading properties from " + resource);
+        for (int i = 0; i < loaded.length; i++) {
+            if (loaded[i] != null) {
+                loadProperties(resources.get(i), loaded[i]);
+            } else {
+                missing(resources.get(i));
+            }
+        }
+    }
 
-            final Properties stream = resource.getTOMLObjectProperties();
+    private void loadProperties(TOMLResource resource, Map<String, String> stream) {
+        getLog().debug("Loading properties from " + resource);
 
-            Properties projectProperties = project.getProperties();
-            for (String key : stream.stringPropertyNames()) {
-                projectProperties.put(keyPrefix != null ? keyPrefix + key : key, stream.getProperty(key));
-            }
-        } catch (IOException e) {
-            throw new MojoExecutionException("Error reading TFState from " + resource, e);
+        Properties projectProperties = project.getProperties();
+        for (Map.Entry<String, String> entry : stream.entrySet()) {
+            String key = entry.getKey();
+            projectProperties.put(keyPrefix != null ? keyPrefix + key : key, entry.getValue());
         }
     }
 
@@ -218,73 +358,84 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojo extends AbstractMojo {
         this.project = project;
     }
 
-    private abstract static class TOMLResource {
-        private JSONObject stream;
-        private Properties properties = new Properties();
-        private TomlParseResult result;
+    private static class TOMLParseException extends IOException {
+        private final List<String> errors;
+
+        TOMLParseException(String message, List<String> errors) {
+            super(message);
+            this.errors = errors;
+        }
 
+        List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    private abstract static class TOMLResource {
         public abstract boolean canBeOpened();
 
-        protected abstract String openTOMLString() throws IOException;
+        public abstract Map<String, String> getTOMLObjectProperties() throws IOException;
+    }
 
-        public Properties getTOMLObjectProperties() throws IOException {
+    private static class LocalTOMLResource extends TOMLResource {
+        private final File file;
+
+        private final ParsedSourceCache cache;
+
+        LocalTOMLResource(File file, ParsedSourceCache cache) {
+            this.file = file;
+            this.cache = cache;
+        }
+
+        public boolean canBeOpened() {
+            return file.exists();
+        }
+
+        public Map<String, String> getTOMLObjectProperties() throws IOException {
+            return cache.get(file, "toml", this::parse);
+        }
 
-            if (stream == null) {
-                String t = openTOMLString();
-                result = Toml.parse(t);
-                if (result.errors().size() > 0) {
-                    for (TomlParseError e : result.errors()) {
-                        System.err.println(e.toString());
-                    }
-                    throw new IOException("Errors exist in TOML source " + toString());
+        private Map<String, String> parse(Path path) throws IOException {
+            TomlParseResult result = Toml.parse(path);
+            if (result.hasErrors()) {
+                List<String> errors = new ArrayList<>(result.errors().size());
+                for (TomlParseError e : result.errors()) {
+                    errors.add(e.toString());
                 }
+                throw new TOMLParseException("Errors exist in TOML source " + toString(), errors);
             }
-            SortedSet<String> s = new TreeSet<>(result.dottedKeySet());
-            for (String key : s) {
-                Object v = result.get(key);
-                properties.setProperty(key, v.toString());
-            }
-
+            Map<String, String> properties = new HashMap<>();
+            TOMLFlattener.flatten(result, properties);
             return properties;
         }
+
+        public String toString() {
+            return "File: " + file;
+        }
     }
 
-    private static class LocalTOMLResource extends TOMLResource {
+    private static class LocalAWSCredentialsResource extends TOMLResource {
         private final File file;
-        private boolean reformat;
 
-        LocalTOMLResource(File file, boolean reformat) {
+        private final ParsedSourceCache cache;
+
+        LocalAWSCredentialsResource(File file, ParsedSourceCache cache) {
             this.file = file;
-            this.reformat = reformat;
+            this.cache = cache;
         }
 
         public boolean canBeOpened() {
             return file.exists();
         }
 
-        protected String openTOMLString() throws IOException {
-            String s = new String(Files.readAllBytes(file.toPath()));
-            if (!reformat) {
-                return s;
-            }
-            StringBuffer sb = new StringBuffer();
-            for (String l : Arrays.asList(s.split("\n"))) {
-                if (l.contains("=")) {
-                    String w = l.trim();
-                    String[] x = w.split("=");
-                    if (x.length == 2) {
-                        /* Quote those strings */
-                        sb.append(String.format("%s = \"%s\"\n", x[0].trim(), x[1].trim()));
-                    } else {
-                        sb.append(l);
-                        sb.append("\n");
-                    }
-                } else {
-                    sb.append(l);
-                    sb.append("\n");
+        public Map<String, String> getTOMLObjectProperties() throws IOException {
+            return cache.get(file, "awscreds", path -> {
+                Map<String, String> properties = new HashMap<>();
+                try (InputStream in = Files.newInputStream(path)) {
+                    AWSCredentialsReader.read(in, properties);
                 }
-            }
-            return sb.toString();
+                return properties;
+            });
         }
 
         public String toString() {
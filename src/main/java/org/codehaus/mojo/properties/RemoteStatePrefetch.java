@@ -0,0 +1,227 @@
+package org.codehaus.mojo.properties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Finds the remote states that <code>read-json-as-properties</code> executions of the reactor will read, and shares
+ * their background fetches with those executions.
+ *
+ * The fetches are shared through the repository session data, keyed by a string and holding only JDK types
+ * (<code>Map&lt;String, Future&lt;String&gt;&gt;</code> keyed by remote state location), as the build extension and
+ * the mojos may be loaded by different class realms.
+ *
+ * @author mykelalvis
+ */
+final class RemoteStatePrefetch {
+    static final String SESSION_KEY = RemoteStatePrefetch.class.getName();
+
+    static final String PLUGIN_KEY = "org.infrastructurebuilder.maven:properties-maven-plugin";
+
+    static final String GOAL = "read-json-as-properties";
+
+    private RemoteStatePrefetch() {}
+
+    /**
+     * @param session the current session, may be <code>null</code>
+     * @return the fetches started for this session by location, or <code>null</code> if there are none
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Future<String>> prefetched(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return null;
+        }
+        return (Map<String, Future<String>>)
+                session.getRepositorySession().getData().get(SESSION_KEY);
+    }
+
+    /**
+     * Starts fetching every remote state configured in the reactor, once per location.
+     *
+     * @param session the current session
+     * @return the number of fetches started
+     */
+    static int start(MavenSession session) {
+        Map<String, Callable<String>> reads = collect(session);
+        if (reads.isEmpty() || session.getRepositorySession() == null) {
+            return 0;
+        }
+        List<String> locations = new ArrayList<>(reads.keySet());
+        List<Future<String>> futures = OrderedParallelReader.submitAll(new ArrayList<>(reads.values()), true);
+        Map<String, Future<String>> prefetched = new ConcurrentHashMap<>();
+        for (int i = 0; i < locations.size(); i++) {
+            prefetched.put(locations.get(i), futures.get(i));
+        }
+        session.getRepositorySession().getData().set(SESSION_KEY, prefetched);
+        return prefetched.size();
+    }
+
+    /**
+     * Turns the remote states found in the reactor into what a caller does with them.
+     *
+     * @param <T> what is done with a state
+     */
+    interface Reads<T> {
+        /**
+         * @param state a validated S3 state
+         * @return what to do with it, or <code>null</code> to leave it out
+         */
+        T s3(S3RemoteState state);
+
+        /**
+         * @param state a validated artifact repository state
+         * @param project the project whose execution reads it
+         * @return what to do with it, or <code>null</code> to leave it out
+         */
+        T artifactRepo(ArtifactRepoRemoteState state, MavenProject project);
+    }
+
+    /**
+     * @param session the current session
+     * @return a read for every remote state configured in the reactor, by location, in reactor order. States addressed
+     *     by coordinates are left out, as the local repository caches them
+     */
+    static Map<String, Callable<String>> collect(MavenSession session) {
+        return collect(session, new Reads<Callable<String>>() {
+            @Override
+            public Callable<String> s3(S3RemoteState state) {
+                return state::readContents;
+            }
+
+            @Override
+            public Callable<String> artifactRepo(ArtifactRepoRemoteState state, MavenProject project) {
+                return state.getCoordinates() == null ? state::readContents : null;
+            }
+        });
+    }
+
+    /**
+     * @param <T> what is done with a state
+     * @param session the current session
+     * @param reads what to do with each state
+     * @return the result of <code>reads</code> for every remote state configured in the reactor, once per location, in
+     *     reactor order
+     */
+    static <T> Map<String, T> collect(MavenSession session, Reads<T> reads) {
+        Map<String, T> collected = new LinkedHashMap<>();
+        for (MavenProject project : session.getProjects()) {
+            Plugin plugin = project.getBuild().getPluginsAsMap().get(PLUGIN_KEY);
+            if (plugin == null) {
+                continue;
+            }
+            for (PluginExecution execution : plugin.getExecutions()) {
+                if (execution.getGoals().contains(GOAL)) {
+                    Xpp3Dom configuration = Xpp3Dom.mergeXpp3Dom(
+                            (Xpp3Dom) execution.getConfiguration(), (Xpp3Dom) plugin.getConfiguration());
+                    collect(configuration, session.getSettings(), project, reads, collected);
+                }
+            }
+        }
+        return collected;
+    }
+
+    private static <T> void collect(
+            Xpp3Dom configuration, Settings settings, MavenProject project, Reads<T> reads, Map<String, T> collected) {
+        if (configuration == null) {
+            return;
+        }
+        Xpp3Dom s3Urls = configuration.getChild("s3Urls");
+        Xpp3Dom s3Defaults = configuration.getChild("s3RemoteStateDefaults");
+        S3RemoteState s3RemoteStateDefaults = s3(s3Defaults);
+        if (s3Urls != null && (s3Defaults == null || s3RemoteStateDefaults != null)) {
+            for (Xpp3Dom child : s3Urls.getChildren()) {
+                S3RemoteState state = s3(child);
+                try {
+                    if (state != null) {
+                        state.validate(s3RemoteStateDefaults, settings);
+                        /* Nothing is put for a null */
+                        collected.computeIfAbsent(state.getLocation(), location -> reads.s3(state));
+                    }
+                } catch (MojoExecutionException e) {
+                    // left to the execution to report
+                }
+            }
+        }
+        Xpp3Dom repoStates = configuration.getChild("artifactRepoRemoteStates");
+        Xpp3Dom repoDefaults = configuration.getChild("artifactRepoRemoteStateDefaults");
+        ArtifactRepoRemoteState artifactRepoRemoteStateDefaults = artifactRepo(repoDefaults);
+        if (repoStates != null && (repoDefaults == null || artifactRepoRemoteStateDefaults != null)) {
+            for (Xpp3Dom child : repoStates.getChildren()) {
+                ArtifactRepoRemoteState state = artifactRepo(child);
+                try {
+                    if (state != null) {
+                        state.validate(artifactRepoRemoteStateDefaults, settings);
+                        collected.computeIfAbsent(state.getLocation(), location -> reads.artifactRepo(state, project));
+                    }
+                } catch (MojoExecutionException | NullPointerException e) {
+                    // incomplete configuration, left to the execution to report
+                }
+            }
+        }
+    }
+
+    /* null when absent or when a value is an expression that is only known once the execution runs */
+    private static S3RemoteState s3(Xpp3Dom dom) {
+        if (dom == null || hasExpression(dom)) {
+            return null;
+        }
+        S3RemoteState state = new S3RemoteState();
+        if (value(dom, "id") != null) {
+            state.setId(value(dom, "id"));
+        }
+        state.setProfile(value(dom, "profile"));
+        state.setServerId(value(dom, "serverId"));
+        state.setRegion(value(dom, "region"));
+        state.setBucket(value(dom, "bucket"));
+        state.setKey(value(dom, "key"));
+        state.setVersionId(value(dom, "versionId"));
+        state.setEtag(value(dom, "etag"));
+        return state;
+    }
+
+    private static ArtifactRepoRemoteState artifactRepo(Xpp3Dom dom) {
+        if (dom == null || hasExpression(dom)) {
+            return null;
+        }
+        ArtifactRepoRemoteState state = new ArtifactRepoRemoteState();
+        if (value(dom, "id") != null) {
+            state.setId(value(dom, "id"));
+        }
+        state.setServerId(value(dom, "serverId"));
+        state.setUrl(value(dom, "url"));
+        state.setRepo(value(dom, "repo"));
+        state.setSubpath(value(dom, "subpath"));
+        state.setCoordinates(value(dom, "coordinates"));
+        return state;
+    }
+
+    private static String value(Xpp3Dom dom, String name) {
+        Xpp3Dom child = dom.getChild(name);
+        return child != null ? child.getValue() : null;
+    }
+
+    private static boolean hasExpression(Xpp3Dom dom) {
+        if (dom.getValue() != null && dom.getValue().contains("${")) {
+            return true;
+        }
+        for (Xpp3Dom child : dom.getChildren()) {
+            if (hasExpression(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+package org.codehaus.mojo.properties;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts fetching the remote states of every <code>read-json-as-properties</code> execution in the reactor as soon as
+ * the projects are read, so that the executions find them already in memory instead of fetching them on their
+ * module's critical path. Only active when the plugin is declared with
+ * <code>&lt;extensions&gt;true&lt;/extensions&gt;</code>; without it the executions fetch as before.
+ *
+ * @author mykelalvis
+ */
+@Named("properties-remote-state-prefetch")
+@Singleton
+public class RemoteStatePrefetchParticipant extends AbstractMavenLifecycleParticipant {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public void afterProjectsRead(MavenSession session) {
+        int started = RemoteStatePrefetch.start(session);
+        if (started > 0) {
+            logger.info("Prefetching {} remote state(s) in the background", started);
+        }
+    }
+}
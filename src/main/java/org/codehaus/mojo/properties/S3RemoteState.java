@@ -1,12 +1,18 @@
 package org.codehaus.mojo.properties;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.profile.ProfileCredentialsProvider;
+import com.amazonaws.regions.AwsProfileRegionProvider;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -50,6 +56,18 @@ public class S3RemoteState {
      */
     private String key;
 
+    /**
+     * Optional version of the object to read. A pinned version never changes, so it is downloaded once and then read
+     * from the content store
+     */
+    private String versionId;
+
+    /**
+     * Optional ETag the object must have. The read fails if the object has changed, otherwise it is downloaded once
+     * and then read from the content store
+     */
+    private String etag;
+
     public String getId() {
         return id;
     }
@@ -98,6 +116,22 @@ public class S3RemoteState {
         this.key = key;
     }
 
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(String versionId) {
+        this.versionId = versionId;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
     private Server server;
 
     /**
@@ -106,25 +140,123 @@ public class S3RemoteState {
      * @throws IOException
      */
     public String readContents() throws IOException {
-        if (profile != null) {
-            System.getProperties().setProperty("aws.profile", profile);
+        return new String(get(client()).content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the object through the content store. A version or ETag pinned object is read from the store once it is
+     * there. Otherwise the current ETag of the object is asked for with a HEAD request, and the object is only
+     * downloaded when it differs from the stored one.
+     *
+     * @param store where objects are kept between builds
+     * @return string of JSONObject
+     * @throws IOException if the object cannot be read
+     */
+    String readContents(ContentStore store) throws IOException {
+        return new String(read(store).content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the object into the content store like {@link #readContents(ContentStore)}.
+     *
+     * @param store where objects are kept between builds
+     * @return the number of bytes downloaded, <code>0</code> when the stored object is current
+     * @throws IOException if the object cannot be read
+     */
+    long prefetch(ContentStore store) throws IOException {
+        Fetched fetched = read(store);
+        return fetched.downloaded ? fetched.content.length : 0;
+    }
+
+    private Fetched read(ContentStore store) throws IOException {
+        String location = getLocation();
+        ContentStore.Entry stored = store.get(location);
+        if (stored != null && isPinned()) {
+            return new Fetched(stored.getContent(), stored.getMetadata("etag"), false);
         }
+        AmazonS3 client = client();
+        if (stored != null && stored.getMetadata("etag") != null) {
+            String current = client.getObjectMetadata(bucket, key).getETag();
+            if (stored.getMetadata("etag").equals(current)) {
+                return new Fetched(stored.getContent(), current, false);
+            }
+        }
+        Fetched fetched = get(client);
+        Map<String, String> metadata = new HashMap<>();
+        if (fetched.etag != null) {
+            metadata.put("etag", fetched.etag);
+        }
+        store.put(location, fetched.content, metadata);
+        return fetched;
+    }
+
+    boolean isPinned() {
+        return versionId != null || etag != null;
+    }
+
+    private static final class Fetched {
+        private final byte[] content;
+
+        private final String etag;
+
+        private final boolean downloaded;
+
+        Fetched(byte[] content, String etag, boolean downloaded) {
+            this.content = content;
+            this.etag = etag;
+            this.downloaded = downloaded;
+        }
+    }
+
+    private Fetched get(AmazonS3 client) throws IOException {
+        GetObjectRequest request = new GetObjectRequest(bucket, key, versionId);
+        if (etag != null) {
+            request.withMatchingETagConstraint(etag);
+        }
+        S3Object v = client.getObject(request);
+        if (v == null) {
+            /* The only reason for no object is a failed ETag constraint */
+            throw new IOException("s3://" + bucket + "/" + key + " no longer has ETag " + etag + " in " + id);
+        }
+        try (S3ObjectInputStream ins = v.getObjectContent()) {
+            String json = ReadJSONObjectAsFlattenedPropertiesMojo.readStream(ins);
+            return new Fetched(
+                    json.getBytes(StandardCharsets.UTF_8), v.getObjectMetadata().getETag(), true);
+        }
+    }
 
+    /**
+     * Override-able for test purposes.
+     *
+     * @return a client with the credentials and region of this state
+     */
+    AmazonS3 client() {
         AmazonS3ClientBuilder s3b = AmazonS3ClientBuilder.standard();
 
+        /* The profile is passed to the client rather than set as aws.profile, so states can be read concurrently */
         if (server != null) {
             AWSCredentials credentials = new BasicAWSCredentials(server.getUsername(), server.getPassword());
             s3b = s3b.withCredentials(new AWSStaticCredentialsProvider(credentials));
+        } else if (profile != null) {
+            s3b = s3b.withCredentials(new ProfileCredentialsProvider(profile));
         }
         if (region != null) {
             s3b = s3b.withRegion(region);
+        } else if (profile != null) {
+            String profileRegion = new AwsProfileRegionProvider(profile).getRegion();
+            if (profileRegion != null) {
+                s3b = s3b.withRegion(profileRegion);
+            }
         }
-        AmazonS3 client = s3b.build();
+        return s3b.build();
+    }
 
-        S3Object v = client.getObject(bucket, key);
-        try (S3ObjectInputStream ins = v.getObjectContent()) {
-            return ReadJSONObjectAsFlattenedPropertiesMojo.readStream(ins);
-        }
+    /**
+     * @return identifies the object and the credentials used to read it, e.g. for caching
+     */
+    String getLocation() {
+        return "s3://" + bucket + "/" + key + "?region=" + region + "&profile=" + profile + "&serverId=" + serverId
+                + (versionId != null ? "&versionId=" + versionId : "") + (etag != null ? "&etag=" + etag : "");
     }
 
     public S3RemoteState validate(S3RemoteState defaults, Settings settings) throws MojoExecutionException {
@@ -0,0 +1,140 @@
+package org.codehaus.mojo.properties;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.settings.Server;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Build scoped cache of the flattened <code>&lt;configuration&gt;</code> of <code>settings.xml</code> servers, so that
+ * each is walked once per build rather than once per module.
+ *
+ * Elements are joined with <code>.</code> below <code>configuration</code>, elements repeated under one parent are
+ * addressed as <code>name[0]</code>, <code>name[1]</code>, ... in the notation of the JSON and TOML flatteners, and
+ * attributes as <code>element@attribute</code>. Only the text of elements without children is kept. Values are cached
+ * as they appear in <code>settings.xml</code>, i.e. still encrypted.
+ *
+ * @author mykelalvis
+ */
+final class ServerConfigurations {
+    private static final class Flattened {
+        private final Object configuration;
+
+        private final Map<String, String> properties;
+
+        Flattened(Object configuration, Map<String, String> properties) {
+            this.configuration = configuration;
+            this.properties = properties;
+        }
+    }
+
+    private final Map<String, Flattened> servers = new ConcurrentHashMap<>();
+
+    /**
+     * @param session the current session, may be <code>null</code> (e.g. in tests) in which case an unshared cache is
+     *     returned
+     * @return the cache shared by every execution in the session
+     */
+    static ServerConfigurations forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new ServerConfigurations();
+        }
+        SessionData data = session.getRepositorySession().getData();
+        /* Keyed by the Class object so that different plugin versions in one reactor never share instances */
+        Object cache = data.get(ServerConfigurations.class);
+        while (cache == null) {
+            data.set(ServerConfigurations.class, null, new ServerConfigurations());
+            cache = data.get(ServerConfigurations.class);
+        }
+        return (ServerConfigurations) cache;
+    }
+
+    /**
+     * @param server a server
+     * @return its configuration as immutable properties, keyed from <code>configuration</code>; empty when it has none
+     */
+    Map<String, String> get(Server server) {
+        Object configuration = server.getConfiguration();
+        if (!(configuration instanceof Xpp3Dom)) {
+            return Collections.emptyMap();
+        }
+        Flattened flattened = servers.get(server.getId());
+        /* Identity, as the settings of a build are shared by all its modules */
+        if (flattened == null || flattened.configuration != configuration) {
+            flattened = new Flattened(configuration, Collections.unmodifiableMap(flatten((Xpp3Dom) configuration)));
+            servers.put(server.getId(), flattened);
+        }
+        return flattened.properties;
+    }
+
+    /**
+     * Walks the DOM depth first with an explicit stack and one key builder. A node is only popped once the subtree of
+     * its previous sibling is done, so the builder then still starts with the key of its parent.
+     *
+     * @param root the <code>configuration</code> element
+     * @return one entry per leaf element and per attribute
+     */
+    static Map<String, String> flatten(Xpp3Dom root) {
+        Map<String, String> target = new HashMap<>();
+        StringBuilder key = new StringBuilder(64);
+        Deque<Xpp3Dom> nodes = new ArrayDeque<>();
+        /* Per stacked node: the length of its parent's key, and its index among equally named siblings or -1 */
+        Deque<int[]> frames = new ArrayDeque<>();
+        nodes.push(root);
+        frames.push(new int[] {0, -1});
+        while (!nodes.isEmpty()) {
+            Xpp3Dom node = nodes.pop();
+            int[] frame = frames.pop();
+            key.setLength(frame[0]);
+            if (key.length() > 0) {
+                key.append('.');
+            }
+            key.append(node.getName());
+            if (frame[1] >= 0) {
+                key.append('[').append(frame[1]).append(']');
+            }
+            int mark = key.length();
+            for (String attribute : node.getAttributeNames()) {
+                key.append('@').append(attribute);
+                target.put(key.toString(), node.getAttribute(attribute));
+                key.setLength(mark);
+            }
+            Xpp3Dom[] children = node.getChildren();
+            if (children.length == 0) {
+                if (node.getValue() != null) {
+                    target.put(key.toString(), node.getValue());
+                }
+                continue;
+            }
+            int[] indexes = indexes(children);
+            /* Pushed in reverse, so that children are visited in document order */
+            for (int i = children.length - 1; i >= 0; i--) {
+                nodes.push(children[i]);
+                frames.push(new int[] {mark, indexes[i]});
+            }
+        }
+        return target;
+    }
+
+    /* The index of each child among its equally named siblings, or -1 for a name that occurs once */
+    private static int[] indexes(Xpp3Dom[] children) {
+        int[] indexes = new int[children.length];
+        Map<String, Integer> counts = new HashMap<>();
+        for (Xpp3Dom child : children) {
+            counts.merge(child.getName(), 1, Integer::sum);
+        }
+        Map<String, Integer> next = new HashMap<>();
+        for (int i = 0; i < children.length; i++) {
+            String name = children[i].getName();
+            indexes[i] = counts.get(name) > 1 ? next.merge(name, 1, Integer::sum) - 1 : -1;
+        }
+        return indexes;
+    }
+}
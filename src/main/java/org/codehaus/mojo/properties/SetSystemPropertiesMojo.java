@@ -22,6 +22,7 @@ package org.codehaus.mojo.properties;
 import java.util.Enumeration;
 import java.util.Properties;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -42,6 +43,20 @@ public class SetSystemPropertiesMojo extends AbstractMojo {
     @Parameter(required = true)
     private Properties properties;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Default scope for test access.
+     *
+     * @param properties the system properties to set
+     * @param session the current session
+     */
+    void setProperties(Properties properties, MavenSession session) {
+        this.properties = properties;
+        this.session = session;
+    }
+
     // Mojo methods -----------------------------------------------------------
 
     /**
@@ -64,6 +79,8 @@ public class SetSystemPropertiesMojo extends AbstractMojo {
 
             System.setProperty(propertyName, propertyValue);
         }
+        /* Later write-project-properties executions must see the new values */
+        SystemPropertiesSnapshot.invalidate(session);
 
         int count = properties.size();
 
@@ -0,0 +1,231 @@
+package org.codehaus.mojo.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, sorted snapshot of properties, taken once and shared by every {@link PropertiesEncoder} of an
+ * execution.
+ *
+ * Keys are in dotted order: lexicographic, except that <code>.</code> sorts before every other character. Keys below a
+ * dotted prefix therefore directly follow the prefix (<code>a</code>, <code>a.b</code>, <code>a.c</code>,
+ * <code>a-b</code>), which lets nesting encoders stream objects without looking back.
+ *
+ * @author mykelalvis
+ */
+final class SortedProperties {
+    /**
+     * Lexicographic, with <code>.</code> before every other character.
+     */
+    static final Comparator<String> DOTTED_ORDER = (a, b) -> {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                return x == '.' ? -1 : y == '.' ? 1 : x - y;
+            }
+        }
+        return a.length() - b.length();
+    };
+
+    private final String[] keys;
+
+    private final Map<String, String> values;
+
+    /* The order of the lines of the properties format, computed on first use */
+    private String[] escapedKeys;
+
+    private Map<String, String> escapedValues;
+
+    private SortedProperties(String[] keys, Map<String, String> values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param properties the properties, whose keys and values must be strings
+     * @return the snapshot
+     */
+    static SortedProperties of(Properties properties) {
+        String[] keys;
+        Map<String, String> values;
+        synchronized (properties) {
+            keys = new String[properties.size()];
+            values = new HashMap<>(keys.length * 4 / 3 + 1);
+            int i = 0;
+            for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+                keys[i] = (String) entry.getKey();
+                values.put(keys[i++], (String) entry.getValue());
+            }
+        }
+        Arrays.sort(keys, DOTTED_ORDER);
+        return new SortedProperties(keys, values);
+    }
+
+    /**
+     * @return the keys in dotted order; not to be modified
+     */
+    String[] keys() {
+        return keys;
+    }
+
+    /**
+     * @param key a key
+     * @return its value, or <code>null</code>
+     */
+    String get(String key) {
+        return values.get(key);
+    }
+
+    boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Selects keys without sorting again. Keys sharing a prefix are contiguous, so <code>prefix</code> and the literal
+     * start of every include pattern (up to its first wildcard) are looked up by binary search, and only the keys in
+     * those ranges are matched against the patterns.
+     *
+     * @param prefix only keys starting with it, or <code>null</code> for all keys
+     * @param stripPrefix whether <code>prefix</code> is removed from the selected keys
+     * @param includes glob patterns (<code>*</code> and <code>?</code>) of keys to select, all keys when empty
+     * @param excludes glob patterns of keys to leave out
+     * @return the selected properties, in dotted order
+     */
+    SortedProperties filter(String prefix, boolean stripPrefix, List<String> includes, List<String> excludes) {
+        String selected = prefix != null ? prefix : "";
+        int from = lowerBound(selected);
+        int to = upperBound(selected, from);
+        BitSet matches = new BitSet(keys.length);
+        if (includes.isEmpty()) {
+            matches.set(from, to);
+        } else {
+            for (String include : includes) {
+                Pattern pattern = glob(include);
+                String literal = literalPrefix(include);
+                /* The range of keys starting with both the prefix and the pattern's literal start */
+                String start = literal.length() > selected.length() ? literal : selected;
+                if (!start.startsWith(literal) || !start.startsWith(selected)) {
+                    continue;
+                }
+                int includeFrom = Math.max(from, lowerBound(start));
+                int includeTo = Math.min(to, upperBound(start, includeFrom));
+                for (int i = includeFrom; i < includeTo; i++) {
+                    if (!matches.get(i) && pattern.matcher(keys[i]).matches()) {
+                        matches.set(i);
+                    }
+                }
+            }
+        }
+        List<Pattern> excluded = new ArrayList<>(excludes.size());
+        for (String exclude : excludes) {
+            excluded.add(glob(exclude));
+        }
+        String[] filtered = new String[matches.cardinality()];
+        Map<String, String> filteredValues = new HashMap<>(filtered.length * 4 / 3 + 1);
+        int n = 0;
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            if (isExcluded(keys[i], excluded)) {
+                continue;
+            }
+            /* Removing a prefix that all keys share keeps them in order */
+            String key = stripPrefix && prefix != null ? keys[i].substring(prefix.length()) : keys[i];
+            filtered[n++] = key;
+            filteredValues.put(key, values.get(keys[i]));
+        }
+        return new SortedProperties(Arrays.copyOf(filtered, n), filteredValues);
+    }
+
+    private static boolean isExcluded(String key, List<Pattern> excludes) {
+        for (Pattern exclude : excludes) {
+            if (exclude.matcher(key).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* The index of the first key not below the prefix */
+    private int lowerBound(String prefix) {
+        int i = Arrays.binarySearch(keys, prefix, DOTTED_ORDER);
+        return i >= 0 ? i : -(i + 1);
+    }
+
+    /* The index after the last key starting with the prefix */
+    private int upperBound(String prefix, int from) {
+        int i = from;
+        while (i < keys.length && keys[i].startsWith(prefix)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String literalPrefix(String glob) {
+        int i = 0;
+        while (i < glob.length() && glob.charAt(i) != '*' && glob.charAt(i) != '?') {
+            i++;
+        }
+        return glob.substring(0, i);
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * The properties format sorts its escaped lines, which is not the dotted order, so that order is kept here and
+     * computed only once however many properties outputs there are.
+     *
+     * @return the escaped keys of the properties format, each followed by <code>=</code>, in line order; not to be
+     *     modified
+     */
+    synchronized String[] escapedKeys() {
+        if (escapedKeys == null) {
+            String[] escaped = new String[keys.length];
+            escapedValues = new HashMap<>(keys.length * 4 / 3 + 1);
+            for (int i = 0; i < keys.length; i++) {
+                escaped[i] = PropertiesWriter.escapeKey(keys[i]);
+                escapedValues.put(escaped[i], values.get(keys[i]));
+            }
+            /* Sorting the strings themselves, rather than objects holding them, is markedly faster for large sets */
+            Arrays.sort(escaped);
+            escapedKeys = escaped;
+        }
+        return escapedKeys;
+    }
+
+    /**
+     * @param escapedKey one of {@link #escapedKeys()}
+     * @return its value
+     */
+    synchronized String getEscaped(String escapedKey) {
+        return escapedValues.get(escapedKey);
+    }
+}
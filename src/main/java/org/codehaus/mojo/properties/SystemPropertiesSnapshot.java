@@ -0,0 +1,67 @@
+package org.codehaus.mojo.properties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * An immutable copy of the JVM system properties, taken once per build and shared by every execution, so that large
+ * system property tables (e.g. under test harnesses) are not walked, and their lock not taken, by every module.
+ *
+ * Only entries whose key and value are both strings are kept, as for {@link Properties#getProperty(String)}.
+ * Whoever sets system properties during the build, like the <code>set-system-properties</code> goal, must call
+ * {@link #invalidate(MavenSession)} so that later executions take a new snapshot.
+ *
+ * @author mykelalvis
+ */
+final class SystemPropertiesSnapshot {
+    private final Map<String, String> properties;
+
+    private SystemPropertiesSnapshot() {
+        Properties system = System.getProperties();
+        Map<String, String> copy;
+        synchronized (system) {
+            copy = new HashMap<>(system.size() * 4 / 3 + 1);
+            for (Map.Entry<Object, Object> entry : system.entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
+                    copy.put((String) entry.getKey(), (String) entry.getValue());
+                }
+            }
+        }
+        this.properties = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @param session the current session, may be <code>null</code> (e.g. in tests) in which case a new snapshot is
+     *     taken
+     * @return the system properties as they were when first asked for in this session
+     */
+    static Map<String, String> forSession(MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new SystemPropertiesSnapshot().properties;
+        }
+        SessionData data = session.getRepositorySession().getData();
+        /* Keyed by the Class object so that different plugin versions in one reactor never share instances */
+        Object snapshot = data.get(SystemPropertiesSnapshot.class);
+        while (snapshot == null) {
+            data.set(SystemPropertiesSnapshot.class, null, new SystemPropertiesSnapshot());
+            snapshot = data.get(SystemPropertiesSnapshot.class);
+        }
+        return ((SystemPropertiesSnapshot) snapshot).properties;
+    }
+
+    /**
+     * Drops the snapshot of the session, so that the next {@link #forSession(MavenSession)} takes a new one.
+     *
+     * @param session the current session, may be <code>null</code>
+     */
+    static void invalidate(MavenSession session) {
+        if (session != null && session.getRepositorySession() != null) {
+            session.getRepositorySession().getData().set(SystemPropertiesSnapshot.class, null);
+        }
+    }
+}
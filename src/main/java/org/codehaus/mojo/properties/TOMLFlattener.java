@@ -0,0 +1,82 @@
+package org.codehaus.mojo.properties;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.tomlj.Toml;
+import org.tomlj.TomlArray;
+import org.tomlj.TomlTable;
+
+/**
+ * Flattens a parsed TOML document into dotted property keys with a single depth-first walk.
+ *
+ * Table keys are joined with <code>.</code> (quoted the same way as {@link TomlTable#dottedKeySet()} does when they
+ * are not bare keys) and array elements are addressed as <code>key[0]</code>, <code>key[1]</code>, ... in the same
+ * notation the JSON flattener uses, so tables nested in arrays become <code>key[0].child</code>.
+ *
+ * @author mykelalvis
+ */
+final class TOMLFlattener {
+
+    private TOMLFlattener() {}
+
+    /**
+     * @param table the root table
+     * @param target receives one entry per leaf value
+     */
+    static void flatten(TomlTable table, Map<String, String> target) {
+        flattenTable(table, new StringBuilder(64), target);
+    }
+
+    private static void flattenTable(TomlTable table, StringBuilder path, Map<String, String> target) {
+        int mark = path.length();
+        for (String key : table.keySet()) {
+            if (mark > 0) {
+                path.append('.');
+            }
+            appendKey(path, key);
+            flattenValue(table.get(Collections.singletonList(key)), path, target);
+            path.setLength(mark);
+        }
+    }
+
+    private static void flattenArray(TomlArray array, StringBuilder path, Map<String, String> target) {
+        int mark = path.length();
+        for (int i = 0; i < array.size(); i++) {
+            path.append('[').append(i).append(']');
+            flattenValue(array.get(i), path, target);
+            path.setLength(mark);
+        }
+    }
+
+    private static void flattenValue(Object value, StringBuilder path, Map<String, String> target) {
+        if (value instanceof TomlTable) {
+            flattenTable((TomlTable) value, path, target);
+        } else if (value instanceof TomlArray) {
+            flattenArray((TomlArray) value, path, target);
+        } else if (value != null) {
+            target.put(path.toString(), value.toString());
+        }
+    }
+
+    private static void appendKey(StringBuilder path, String key) {
+        if (isBareKey(key)) {
+            path.append(key);
+        } else {
+            path.append(Toml.joinKeyPath(Collections.singletonList(key)));
+        }
+    }
+
+    private static boolean isBareKey(String key) {
+        if (key.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -49,6 +49,6 @@ public class WriteActiveProfileProperties extends AbstractWritePropertiesMojo {
             }
         }
 
-        writeProperties(properties, getOutputFile());
+        writeProperties(properties);
     }
 }
@@ -19,12 +19,14 @@ package org.codehaus.mojo.properties;
  * under the License.
  */
 
-import java.util.Enumeration;
+import java.util.Map;
 import java.util.Properties;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 
 /**
  * Writes project properties to a file.
@@ -33,25 +35,73 @@ import org.apache.maven.plugins.annotations.Mojo;
  */
 @Mojo(name = "write-project-properties", defaultPhase = LifecyclePhase.NONE, threadSafe = true)
 public class WriteProjectProperties extends AbstractWritePropertiesMojo {
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Log the project properties whose value is replaced by a system property.
+     */
+    @Parameter(defaultValue = "false", property = "properties.logOverrides")
+    private boolean logOverrides;
+
+    /**
+     * Default scope for test access.
+     *
+     * @param logOverrides whether overridden keys are logged
+     */
+    void setLogOverrides(boolean logOverrides) {
+        this.logOverrides = logOverrides;
+    }
+
+    /**
+     * Default scope for test access.
+     *
+     * @param session the current session
+     */
+    void setSession(MavenSession session) {
+        this.session = session;
+    }
+
     /** {@inheritDoc} */
     public void execute() throws MojoExecutionException {
         validateOutputFile();
         validateEncoding();
+        Properties projectProperties = getProject().getProperties();
         Properties projProperties = new Properties();
-        projProperties.putAll(getProject().getProperties());
-
-        Properties systemProperties = System.getProperties();
+        projProperties.putAll(projectProperties);
 
-        // allow system properties to over write key/value found in maven properties
-        Enumeration<?> enumeration = systemProperties.keys();
-        while (enumeration.hasMoreElements()) {
-            String key = (String) enumeration.nextElement();
-            String value = systemProperties.getProperty(key);
-            if (projProperties.get(key) != null) {
-                projProperties.put(key, value);
+        // allow system properties to over write key/value found in maven properties, walking the smaller of the two
+        Map<String, String> systemProperties = SystemPropertiesSnapshot.forSession(session);
+        int overridden = 0;
+        if (systemProperties.size() < projectProperties.size()) {
+            for (Map.Entry<String, String> entry : systemProperties.entrySet()) {
+                String key = entry.getKey();
+                overridden += override(projProperties, key, projectProperties.get(key), entry.getValue());
             }
+        } else {
+            for (Map.Entry<Object, Object> entry : projectProperties.entrySet()) {
+                Object key = entry.getKey();
+                overridden += override(projProperties, key, entry.getValue(), systemProperties.get(key));
+            }
+        }
+        if (logOverrides) {
+            getLog().info(overridden + " project property(ies) overridden by system properties");
         }
 
-        writeProperties(projProperties, getOutputFile());
+        writeProperties(projProperties);
+    }
+
+    private int override(Properties target, Object key, Object projectValue, String systemValue) {
+        if (projectValue == null || systemValue == null) {
+            return 0;
+        }
+        target.put(key, systemValue);
+        if (systemValue.equals(projectValue)) {
+            return 0;
+        }
+        if (logOverrides) {
+            getLog().info("Overriding " + key + " with its system property value");
+        }
+        return 1;
     }
 }
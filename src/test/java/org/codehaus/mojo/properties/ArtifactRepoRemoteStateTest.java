@@ -0,0 +1,185 @@
+package org.codehaus.mojo.properties;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ArtifactRepoRemoteStateTest {
+    private Settings settings;
+
+    /* What the stub repository system was asked for */
+    private final List<ArtifactRequest> requests = new ArrayList<>();
+
+    private final List<RemoteRepository> resolutionRepositories = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        settings = new Settings();
+        Server server = new Server();
+        server.setId("artifacts");
+        settings.addServer(server);
+    }
+
+    @Test
+    public void testCoordinatesNameTheArtifact() throws Exception {
+        assertEquals("mvn:com.example:service:json:1.0", location("com.example:service:1.0"));
+        assertEquals("mvn:com.example:service:json:prod:1.0", location("com.example:service:1.0:prod"));
+        assertEquals("mvn:com.example:service:tfstate:prod:1.0", location("com.example:service:1.0:prod:tfstate"));
+        assertEquals("mvn:com.example:service:json:1.0", location("com.example:service:1.0::"));
+        assertEquals("mvn:com.example:service:tfstate:1.0", location(" com.example:service:1.0::tfstate "));
+    }
+
+    @Test
+    public void testMalformedCoordinatesAreRejected() {
+        for (String coordinates : new String[] {
+            "com.example:service",
+            "com.example:service:1.0:prod:json:extra",
+            ":service:1.0",
+            "com.example::1.0",
+            "com.example:service:",
+            "com.example:service::prod"
+        }) {
+            ArtifactRepoRemoteState state = state(coordinates);
+            MojoExecutionException e =
+                    assertThrows(coordinates, MojoExecutionException.class, () -> state.validate(null, settings));
+            assertEquals(
+                    "Coordinates of default must be groupId:artifactId:version[:classifier[:type]], not " + coordinates,
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCoordinatesNeedNoSubpath() throws Exception {
+        ArtifactRepoRemoteState defaults = new ArtifactRepoRemoteState();
+        defaults.setServerId("artifacts");
+        defaults.setUrl("https://repo.example.com");
+        defaults.setRepo("tf");
+        ArtifactRepoRemoteState state = state("com.example:service:1.0");
+
+        state.validate(defaults, settings);
+
+        assertEquals("mvn:com.example:service:json:1.0?repository=https://repo.example.com/tf", state.getLocation());
+    }
+
+    @Test
+    public void testCoordinatesCheckTheServer() {
+        ArtifactRepoRemoteState state = state("com.example:service:1.0");
+        state.setServerId("missing");
+
+        MojoExecutionException e = assertThrows(MojoExecutionException.class, () -> state.validate(null, settings));
+
+        assertEquals("Server missing not found in settings in default", e.getMessage());
+    }
+
+    @Test
+    public void testCoordinatesAreResolvedFromTheProjectRepositories() throws Exception {
+        Path file = artifact();
+        ArtifactRepoRemoteState state = state("com.example:service:1.0:prod");
+        List<RemoteRepository> project = Collections.singletonList(
+                new RemoteRepository.Builder("central", "default", "https://repo1.example.com").build());
+
+        String json = state.validate(null, settings).readContents(repositorySystem(file), null, project);
+
+        assertEquals("{\"a\":1}", json);
+        assertEquals(1, requests.size());
+        assertEquals(
+                "com.example:service:json:prod:1.0",
+                requests.get(0).getArtifact().toString());
+        assertEquals(project, requests.get(0).getRepositories());
+        assertEquals(0, resolutionRepositories.size());
+    }
+
+    @Test
+    public void testCoordinatesAreResolvedFromTheConfiguredRepository() throws Exception {
+        Path file = artifact();
+        ArtifactRepoRemoteState state = state("com.example:service:1.0");
+        state.setServerId("artifacts");
+        state.setUrl("https://repo.example.com");
+        state.setRepo("tf");
+
+        state.validate(null, settings).readContents(repositorySystem(file), null, new ArrayList<>());
+
+        assertEquals(1, resolutionRepositories.size());
+        assertEquals("artifacts", resolutionRepositories.get(0).getId());
+        assertEquals(
+                "https://repo.example.com/tf", resolutionRepositories.get(0).getUrl());
+        assertEquals(resolutionRepositories, requests.get(0).getRepositories());
+    }
+
+    @Test
+    public void testReaderResolvesCoordinatesInsteadOfOpeningTheUrl() throws Exception {
+        Path file = artifact();
+        ArtifactRepoRemoteState state = state("com.example:service:1.0");
+        /* Nothing listens here, and no serverId is set, which a URL read requires */
+        state.setUrl("http://127.0.0.1:1");
+        state.setRepo("tf");
+        MavenProject project = new MavenProject(new Model());
+        ReadJSONObjectAsFlattenedPropertiesMojo mojo = new ReadJSONObjectAsFlattenedPropertiesMojo();
+        mojo.setProject(project);
+        mojo.setSettings(settings);
+        mojo.setSession(new MavenSessionStub(settings, project));
+        mojo.setRepositorySystem(repositorySystem(file));
+        mojo.setArtifactRepoRemoteStates(state);
+
+        mojo.execute();
+
+        assertEquals("1", project.getProperties().getProperty("a"));
+        assertEquals(1, requests.size());
+    }
+
+    private String location(String coordinates) throws MojoExecutionException {
+        return state(coordinates).validate(null, settings).getLocation();
+    }
+
+    private static ArtifactRepoRemoteState state(String coordinates) {
+        ArtifactRepoRemoteState state = new ArtifactRepoRemoteState();
+        state.setCoordinates(coordinates);
+        return state;
+    }
+
+    private static Path artifact() throws Exception {
+        Path file = Files.createTempFile("service", ".json");
+        file.toFile().deleteOnExit();
+        Files.write(file, "{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /* Resolves every artifact to the given file */
+    @SuppressWarnings("unchecked")
+    private RepositorySystem repositorySystem(Path file) {
+        return (RepositorySystem) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {RepositorySystem.class}, (proxy, method, args) -> {
+                    if ("newResolutionRepositories".equals(method.getName())) {
+                        resolutionRepositories.addAll((List<RemoteRepository>) args[1]);
+                        return args[1];
+                    }
+                    if (!"resolveArtifact".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    ArtifactRequest request = (ArtifactRequest) args[1];
+                    requests.add(request);
+                    ArtifactResult result = new ArtifactResult(request);
+                    result.setArtifact(request.getArtifact().setFile(file.toFile()));
+                    return result;
+                });
+    }
+}
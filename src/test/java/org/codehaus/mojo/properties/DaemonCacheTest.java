@@ -0,0 +1,43 @@
+package org.codehaus.mojo.properties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+public class DaemonCacheTest {
+    private static final int TTL = 3600;
+
+    @Test
+    public void testRemoteContentIsReusedUntilItExpires() throws Exception {
+        DaemonCache cache = DaemonCache.get(16);
+        AtomicInteger fetches = new AtomicInteger();
+        byte[] content = "{}".getBytes(StandardCharsets.UTF_8);
+        DaemonCache.Remote remote = new DaemonCache.Remote(content, "\"v1\"", null);
+        String key = "test:" + System.nanoTime();
+
+        assertSame(content, cache.remote(key, TTL, stale -> {
+            fetches.incrementAndGet();
+            return remote;
+        }));
+        cache.remote(key, TTL, stale -> {
+            fetches.incrementAndGet();
+            return remote;
+        });
+        assertEquals(1, fetches.get());
+
+        // once expired the fetcher sees the previous entry and may keep it, as after a 304
+        assertArrayEquals(content, cache.remote(key, 0, stale -> {
+            fetches.incrementAndGet();
+            assertNotNull(stale);
+            assertEquals("\"v1\"", stale.getEtag());
+            return stale;
+        }));
+        assertEquals(2, fetches.get());
+    }
+}
@@ -0,0 +1,62 @@
+package org.codehaus.mojo.properties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DecryptionCacheTest {
+
+    @Test
+    public void testEachCipherTextIsDecryptedOnce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        SecDispatcher dispatcher = value -> {
+            calls.incrementAndGet();
+            return value.startsWith("{") ? "plain-" + value.substring(1, value.length() - 1) : value;
+        };
+        DecryptionCache cache = new DecryptionCache();
+
+        for (int module = 0; module < 3; module++) {
+            assertEquals("plain-abc", cache.decrypt(dispatcher, "{abc}"));
+            assertEquals("plain-def", cache.decrypt(dispatcher, "{def}"));
+            assertEquals("user", cache.decrypt(dispatcher, "user"));
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(2, cache.getDecrypts());
+        assertEquals("decryption cache: 2 decrypt call(s), 4 hit(s), 2 value(s)", cache.toString());
+    }
+
+    @Test
+    public void testPlainValuesBypassTheDispatcherAndTheCache() throws Exception {
+        SecDispatcher dispatcher = value -> {
+            throw new AssertionError("dispatcher called for " + value);
+        };
+        DecryptionCache cache = new DecryptionCache();
+
+        assertEquals("user", cache.decrypt(dispatcher, "user"));
+        assertEquals("plain password", cache.decrypt(dispatcher, "plain password"));
+        assertEquals("-----BEGIN KEY-----\nabc", cache.decrypt(dispatcher, "-----BEGIN KEY-----\nabc"));
+
+        assertEquals(0, cache.getDecrypts());
+        assertEquals("decryption cache: 0 decrypt call(s), 0 hit(s), 0 value(s)", cache.toString());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        SecDispatcher dispatcher = value -> {
+            calls.incrementAndGet();
+            throw new SecDispatcherException("no master password");
+        };
+        DecryptionCache cache = new DecryptionCache();
+
+        assertThrows(SecDispatcherException.class, () -> cache.decrypt(dispatcher, "{abc}"));
+        assertThrows(SecDispatcherException.class, () -> cache.decrypt(dispatcher, "{abc}"));
+        assertEquals(2, calls.get());
+    }
+}
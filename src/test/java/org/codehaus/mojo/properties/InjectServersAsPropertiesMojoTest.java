@@ -0,0 +1,177 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.Properties;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.junit.Test;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class InjectServersAsPropertiesMojoTest {
+    /* Not UTF-8, so reading a key file with this content fails */
+    private static final byte[] NOT_UTF8 = {(byte) 0xff, (byte) 0xfe};
+
+    /* The secrets passed to the dispatcher */
+    private final List<String> decrypted = new ArrayList<>();
+
+    @Test
+    public void testJoinedPrivateKeyMatchesReadAllLines() throws Exception {
+        String[] contents = {
+            "", "a", "a\n", "a\nb", "a\r\nb\r\n", "a\rb", "a\n\nb\n\n", "\n", "\r\n\r\n", "-----BEGIN KEY-----\nabc\r"
+        };
+        for (String content : contents) {
+            File f = File.createTempFile("key-test", ".pem");
+            f.deleteOnExit();
+            Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            List<String> lines = Files.readAllLines(f.toPath());
+
+            Map<String, String> joined = InjectServersAsPropertiesMojo.joinLines(f.toPath());
+
+            assertEquals(lines.stream().collect(joining("\\n")), joined.get("privateKeyJoined"));
+            assertEquals(lines.stream().collect(joining("\n")), joined.get("privateKeyJoinedNL"));
+        }
+    }
+
+    @Test
+    public void testKeyPrefixIsCompiledLikeStringFormat() {
+        for (String pattern : new String[] {"server.%s.", "%s.", "servers.", "%s-%%.", "", "%s%n"}) {
+            String[] parts = InjectServersAsPropertiesMojo.compileKeyPrefix(pattern);
+            String prefix = parts.length == 1 ? parts[0] : parts[0] + "repo" + parts[1];
+            assertEquals(String.format(pattern, "repo"), prefix);
+        }
+        assertArrayEquals(new String[] {""}, InjectServersAsPropertiesMojo.compileKeyPrefix(null));
+        assertNull(InjectServersAsPropertiesMojo.compileKeyPrefix("%1$s."));
+        assertNull(InjectServersAsPropertiesMojo.compileKeyPrefix("%S."));
+        assertNull(InjectServersAsPropertiesMojo.compileKeyPrefix("%s-%s."));
+    }
+
+    @Test
+    public void testKeyPrefixWithTwoServerIdsFailsLikeStringFormat() {
+        InjectServersAsPropertiesMojo mojo = mojo(new MavenProject(), null, server("repo", null));
+        mojo.setLazy(false, null);
+        mojo.setKeyPrefix("%s-%s.");
+
+        assertThrows(MissingFormatArgumentException.class, mojo::execute);
+    }
+
+    @Test
+    public void testLazyOnlyInjectsReferencedServers() throws Exception {
+        MavenProject project = new MavenProject();
+        project.getProperties().setProperty("deploy.url", "https://${server.releases.username}@repo.example.com");
+
+        inject(project, null, server("releases", null), server("snapshots", null));
+
+        assertEquals(
+                "https://releases-user@repo.example.com",
+                project.getProperties().getProperty("deploy.url"));
+        assertEquals("releases", project.getProperties().getProperty("server.releases.id"));
+        assertEquals("releases-password", project.getProperties().getProperty("server.releases.password"));
+        assertNull(project.getProperties().getProperty("server.snapshots.id"));
+        assertEquals(Collections.singletonList("{releases-password}"), decrypted);
+    }
+
+    @Test
+    public void testLazyInjectsServersMatchingAPattern() throws Exception {
+        MavenProject project = new MavenProject();
+
+        inject(project, Arrays.asList("snap*"), server("releases", null), server("snapshots", null));
+
+        assertNull(project.getProperties().getProperty("server.releases.id"));
+        assertEquals("snapshots-password", project.getProperties().getProperty("server.snapshots.password"));
+    }
+
+    @Test
+    public void testLazyOnlyReadsReferencedPrivateKeys() throws Exception {
+        File unreadable = File.createTempFile("key-test", ".pem");
+        unreadable.deleteOnExit();
+        Files.write(unreadable.toPath(), NOT_UTF8);
+        File key = File.createTempFile("key-test", ".pem");
+        key.deleteOnExit();
+        Files.write(key.toPath(), "a\nb\n".getBytes(StandardCharsets.UTF_8));
+        MavenProject project = new MavenProject();
+        project.getProperties().setProperty("unreadable.user", "${server.unreadable.username}");
+        project.getProperties().setProperty("key", "${server.readable.privateKeyJoined}");
+
+        inject(project, null, server("unreadable", unreadable), server("readable", key));
+
+        Properties properties = project.getProperties();
+        assertEquals(unreadable.getPath(), properties.getProperty("server.unreadable.privateKey"));
+        assertNull(properties.getProperty("server.unreadable.privateKeyJoined"));
+        assertNull(properties.getProperty("server.unreadable.privateKeyJoinedNL"));
+        assertEquals("a\\nb", properties.getProperty("key"));
+        assertNull(properties.getProperty("server.readable.privateKeyJoinedNL"));
+    }
+
+    @Test
+    public void testLazyNeedsTheServerIdInTheKeyPrefix() {
+        for (String keyPrefix : new String[] {null, "servers."}) {
+            InjectServersAsPropertiesMojo mojo = mojo(new MavenProject(), Collections.emptyList(), server("a", null));
+            mojo.setKeyPrefix(keyPrefix);
+
+            MojoExecutionException e = assertThrows(MojoExecutionException.class, mojo::execute);
+
+            assertEquals(
+                    "lazy needs a keyPrefix that contains the server id, such as server.%s. - not " + keyPrefix,
+                    e.getMessage());
+        }
+    }
+
+    private void inject(MavenProject project, List<String> serverPatterns, Server... servers) throws Exception {
+        InjectServersAsPropertiesMojo mojo = mojo(project, serverPatterns, servers);
+        mojo.setKeyPrefix("server.%s.");
+        mojo.execute();
+    }
+
+    private InjectServersAsPropertiesMojo mojo(MavenProject project, List<String> serverPatterns, Server... servers) {
+        Settings settings = new Settings();
+        for (Server server : servers) {
+            settings.addServer(server);
+        }
+        InjectServersAsPropertiesMojo mojo = new InjectServersAsPropertiesMojo();
+        mojo.setProject(project);
+        mojo.setSettings(settings, dispatcher());
+        mojo.setLazy(true, serverPatterns);
+        return mojo;
+    }
+
+    /* Its password is encrypted, as far as the dispatcher can tell */
+    private static Server server(String id, File privateKey) {
+        Server server = new Server();
+        server.setId(id);
+        server.setUsername(id + "-user");
+        server.setPassword("{" + id + "-password}");
+        server.setPrivateKey(privateKey != null ? privateKey.getPath() : null);
+        return server;
+    }
+
+    /* Strips the braces, and records what it was asked to decrypt */
+    private SecDispatcher dispatcher() {
+        return (SecDispatcher) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {SecDispatcher.class}, (proxy, method, args) -> {
+                    if (!"decrypt".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String secret = (String) args[0];
+                    decrypted.add(secret);
+                    return secret.substring(1, secret.length() - 1);
+                });
+    }
+}
@@ -0,0 +1,43 @@
+package org.codehaus.mojo.properties;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+
+/**
+ * A session without a container, holding a repository session (and so its session data), settings and the projects
+ * of the reactor.
+ */
+final class MavenSessionStub extends MavenSession {
+    private final Settings settings;
+
+    private final List<MavenProject> projects;
+
+    /* Every constructor of MavenSession is deprecated in Maven 3.9, this is the only place that calls one */
+    @SuppressWarnings("deprecation")
+    MavenSessionStub(Settings settings, MavenProject... projects) {
+        super(
+                null,
+                new DefaultRepositorySystemSession(),
+                new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+        this.settings = settings;
+        this.projects = Arrays.asList(projects);
+    }
+
+    @Override
+    public Settings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public List<MavenProject> getProjects() {
+        return projects;
+    }
+}
@@ -0,0 +1,109 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class ParsedSourceCacheTest {
+    private static final int POLLS = 100;
+
+    private static final long POLL_MILLIS = 50;
+
+    @Test
+    public void testUnchangedFileIsParsedOnce() throws Exception {
+        File f = File.createTempFile("cache-test", ".txt");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "one".getBytes(StandardCharsets.UTF_8));
+        AtomicInteger parses = new AtomicInteger();
+        ParsedSourceCache.Parser parser = path -> {
+            parses.incrementAndGet();
+            return Collections.singletonMap("v", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        };
+
+        ParsedSourceCache cache = ParsedSourceCache.forSession(null);
+        Map<String, String> first = cache.get(f, "test", parser);
+        Map<String, String> second = cache.get(f, "test", parser);
+        assertSame(first, second);
+        assertEquals(1, parses.get());
+
+        cache.get(f, "other", parser);
+        assertEquals(2, parses.get());
+
+        Files.write(f.toPath(), "three".getBytes(StandardCharsets.UTF_8));
+        assertEquals("three", cache.get(f, "test", parser).get("v"));
+        assertEquals(3, parses.get());
+    }
+
+    @Test
+    public void testCachedValuesAreImmutable() throws Exception {
+        File f = File.createTempFile("cache-test", ".txt");
+        f.deleteOnExit();
+        Map<String, String> cached = ParsedSourceCache.forSession(null).get(f, "test", path -> new HashMap<>());
+        assertThrows(UnsupportedOperationException.class, () -> cached.put("k", "v"));
+    }
+
+    @Test
+    public void testWatchedCacheDropsChangedFiles() throws Exception {
+        File f = File.createTempFile("cache-test", ".txt");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "one".getBytes(StandardCharsets.UTF_8));
+        AtomicInteger parses = new AtomicInteger();
+        ParsedSourceCache.Parser parser = path -> {
+            parses.incrementAndGet();
+            return Collections.singletonMap("v", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        };
+
+        ParsedSourceCache cache = new ParsedSourceCache(ParsedSourceCache.MAX_BYTES, true);
+        cache.get(f, "test", parser);
+        cache.get(f, "test", parser);
+        assertEquals(1, parses.get());
+
+        Files.write(f.toPath(), "two".getBytes(StandardCharsets.UTF_8));
+        String value = null;
+        for (int i = 0; i < POLLS && !"two".equals(value); i++) {
+            value = cache.get(f, "test", parser).get("v");
+            Thread.sleep(POLL_MILLIS);
+        }
+        assertEquals("two", value);
+    }
+
+    @Test
+    public void testChangeDrainedWhileParsingIsNotMissed() throws Exception {
+        File f = File.createTempFile("cache-test", ".txt");
+        f.deleteOnExit();
+        File sibling = new File(f.getParentFile(), f.getName() + ".sibling");
+        sibling.deleteOnExit();
+        Files.write(f.toPath(), "one".getBytes(StandardCharsets.UTF_8));
+        Files.write(sibling.toPath(), "sibling".getBytes(StandardCharsets.UTF_8));
+        ParsedSourceCache cache = new ParsedSourceCache(ParsedSourceCache.MAX_BYTES, true);
+        ParsedSourceCache.Parser read =
+                path -> Collections.singletonMap("v", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+
+        cache.get(f, "test", path -> {
+            Map<String, String> parsed = read.parse(path);
+            /* The file changes after it was read, and other lookups drain the event before the entry is stored */
+            Files.write(path, "two, longer".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < POLLS / 10; i++) {
+                cache.get(sibling, "test", read);
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return parsed;
+        });
+
+        assertEquals("two, longer", cache.get(f, "test", read).get("v"));
+    }
+}
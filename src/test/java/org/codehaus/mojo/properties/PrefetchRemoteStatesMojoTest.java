@@ -0,0 +1,196 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class PrefetchRemoteStatesMojoTest {
+    private static final String STATE = "{\"a\":1}";
+
+    private Settings settings;
+
+    private Path repository;
+
+    /* Of the repository, without a trailing slash */
+    private String url;
+
+    private File cacheDirectory;
+
+    /* Where the stub repository system resolved artifacts from, a local repository meaning they were not downloaded */
+    private ArtifactRepository resolvedFrom;
+
+    private int resolved;
+
+    private final List<String> infos = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        settings = new Settings();
+        Server server = new Server();
+        server.setId("artifacts");
+        settings.addServer(server);
+        repository = Files.createTempDirectory("states");
+        repository.toFile().deleteOnExit();
+        Files.createDirectories(repository.resolve("tf"));
+        url = repository.toUri().toString().replaceAll("/$", "");
+        cacheDirectory = Files.createTempDirectory("store").toFile();
+        cacheDirectory.deleteOnExit();
+    }
+
+    @Test
+    public void testStatesAreStoredOncePerLocation() throws Exception {
+        write("service.tfstate");
+        write("network.tfstate");
+
+        prefetch(project(states("service.tfstate", "network.tfstate")), project(states("service.tfstate")));
+
+        byte[] state = STATE.getBytes(StandardCharsets.UTF_8);
+        ContentStore store = new ContentStore(cacheDirectory);
+        assertArrayEquals(state, store.get(location("service.tfstate")).getContent());
+        assertArrayEquals(state, store.get(location("network.tfstate")).getContent());
+        assertEquals(
+                "Prefetched 2 remote state(s): " + 2 * state.length + " bytes downloaded, 0 already cached, 0 failed",
+                summary());
+    }
+
+    @Test
+    public void testArtifactsInTheLocalRepositoryAreNotDownloaded() throws Exception {
+        Path artifact = Files.createTempFile("service", ".json");
+        artifact.toFile().deleteOnExit();
+        Files.write(artifact, STATE.getBytes(StandardCharsets.UTF_8));
+        MavenProject project = project("<coordinates>com.example:service:1.0</coordinates>");
+
+        resolvedFrom = new LocalRepository(repository.toFile());
+        prefetch(artifact, project);
+        assertEquals("Prefetched 1 remote state(s): 0 bytes downloaded, 1 already cached, 0 failed", summary());
+
+        infos.clear();
+        resolvedFrom = new RemoteRepository.Builder("central", "default", url).build();
+        prefetch(artifact, project);
+        assertEquals(
+                "Prefetched 1 remote state(s): " + STATE.length() + " bytes downloaded, 0 already cached, 0 failed",
+                summary());
+        assertEquals(2, resolved);
+    }
+
+    @Test
+    public void testFailuresFailTheGoal() throws Exception {
+        write("service.tfstate");
+
+        MojoExecutionException e = assertThrows(
+                MojoExecutionException.class, () -> prefetch(project(states("service.tfstate", "missing.tfstate"))));
+
+        assertEquals("1 remote state(s) could not be prefetched", e.getMessage());
+        assertEquals(
+                "Prefetched 1 remote state(s): " + STATE.length() + " bytes downloaded, 0 already cached, 1 failed",
+                summary());
+    }
+
+    private void prefetch(MavenProject... projects) throws MojoExecutionException {
+        prefetch(null, projects);
+    }
+
+    private void prefetch(Path artifact, MavenProject... projects) throws MojoExecutionException {
+        PrefetchRemoteStatesMojo mojo = new PrefetchRemoteStatesMojo();
+        mojo.setSession(new MavenSessionStub(settings, projects), repositorySystem(artifact), cacheDirectory);
+        mojo.setLog(new SystemStreamLog() {
+            @Override
+            public void info(CharSequence content) {
+                infos.add(content.toString());
+            }
+        });
+        mojo.execute();
+    }
+
+    /* Resolves every artifact to the given file, from resolvedFrom */
+    private RepositorySystem repositorySystem(Path artifact) {
+        return (RepositorySystem) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {RepositorySystem.class}, (proxy, method, args) -> {
+                    if ("newResolutionRepositories".equals(method.getName())) {
+                        return args[1];
+                    }
+                    if (!"resolveArtifact".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    resolved++;
+                    ArtifactRequest request = (ArtifactRequest) args[1];
+                    ArtifactResult result = new ArtifactResult(request);
+                    result.setArtifact(request.getArtifact().setFile(artifact.toFile()));
+                    result.setRepository(resolvedFrom);
+                    return result;
+                });
+    }
+
+    private String summary() {
+        return infos.get(infos.size() - 1);
+    }
+
+    private void write(String subpath) throws IOException {
+        File file = repository.resolve("tf").resolve(subpath).toFile();
+        Files.write(file.toPath(), STATE.getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+    }
+
+    private String states(String... subpaths) {
+        StringBuilder states = new StringBuilder();
+        for (String subpath : subpaths) {
+            states.append("<subpath>").append(subpath).append("</subpath>");
+        }
+        return states.toString();
+    }
+
+    private String location(String subpath) {
+        return url + "/tf/" + subpath + "?serverId=artifacts";
+    }
+
+    /* A project with one read execution, with one artifact repository state per subpath or coordinates element */
+    private MavenProject project(String elements) throws Exception {
+        StringBuilder configuration = new StringBuilder("<configuration><artifactRepoRemoteStateDefaults>"
+                + "<serverId>artifacts</serverId><url>" + url + "</url><repo>tf</repo>"
+                + "</artifactRepoRemoteStateDefaults><artifactRepoRemoteStates>");
+        for (String element : elements.split("(?=<subpath>|<coordinates>)")) {
+            configuration.append("<state>").append(element).append("</state>");
+        }
+        configuration.append("</artifactRepoRemoteStates></configuration>");
+        PluginExecution execution = new PluginExecution();
+        execution.addGoal(RemoteStatePrefetch.GOAL);
+        execution.setConfiguration(Xpp3DomBuilder.build(new StringReader(configuration.toString())));
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("org.infrastructurebuilder.maven");
+        plugin.setArtifactId("properties-maven-plugin");
+        plugin.addExecution(execution);
+        Model model = new Model();
+        model.setBuild(new Build());
+        model.getBuild().addPlugin(plugin);
+        return new MavenProject(model);
+    }
+}
@@ -0,0 +1,120 @@
+package org.codehaus.mojo.properties;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PropertiesEncoderTest {
+
+    private static String encode(String format, String... keysAndValues) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        StringWriter out = new StringWriter();
+        PropertiesEncoder.forFormat(format).encode(SortedProperties.of(properties), out);
+        return out.toString();
+    }
+
+    @Test
+    public void testDottedOrderKeepsChildrenNextToTheirParent() {
+        Properties properties = new Properties();
+        for (String key : new String[] {"a-b", "a.c", "a", "b", "a.b.c", "a.b"}) {
+            properties.setProperty(key, "");
+        }
+
+        assertArrayEquals(
+                new String[] {"a", "a.b", "a.b.c", "a.c", "a-b", "b"},
+                SortedProperties.of(properties).keys());
+    }
+
+    @Test
+    public void testJsonNestsDottedKeys() throws IOException {
+        assertEquals(
+                "{\n"
+                        + "  \"db\": {\n"
+                        + "    \"pool\": {\n"
+                        + "      \"max\": \"10\"\n"
+                        + "    },\n"
+                        + "    \"url\": \"jdbc:h2:mem\"\n"
+                        + "  },\n"
+                        + "  \"db-name\": \"say \\\"hi\\\"\\n\\u0001\"\n"
+                        + "}\n",
+                encode("json", "db.url", "jdbc:h2:mem", "db.pool.max", "10", "db-name", "say \"hi\"\n\u0001"));
+    }
+
+    @Test
+    public void testJsonKeepsKeysBelowAValueDotted() throws IOException {
+        assertEquals(
+                "{\n  \"a\": \"x\",\n  \"a.b\": \"y\",\n  \"c\": {\n    \"d\": \"z\"\n  }\n}\n",
+                encode("json", "a", "x", "a.b", "y", "c.d", "z"));
+        assertEquals("{}\n", encode("json"));
+    }
+
+    @Test
+    public void testYaml() throws IOException {
+        assertEquals(
+                "db:\n"
+                        + "  pool:\n"
+                        + "    max: \"10\"\n"
+                        + "  url: \"jdbc:h2:mem\"\n"
+                        + "\"on\": \"yes\"\n"
+                        + "\"with space\": \"tab\\there\"\n",
+                encode("yaml", "db.url", "jdbc:h2:mem", "db.pool.max", "10", "on", "yes", "with space", "tab\there"));
+        assertEquals("{}\n", encode("yaml"));
+    }
+
+    @Test
+    public void testDotenvAndShell() throws IOException {
+        assertEquals(
+                "_9LIVES=\"it's\"\nDB_URL='jdbc:h2:mem'\n",
+                encode("dotenv", "db.url", "jdbc:h2:mem", "9lives", "it's"));
+        assertEquals("MULTI=\"one\\ntwo \\\"2\\\"\"\n", encode("dotenv", "multi", "one\ntwo \"2\""));
+        assertEquals(
+                "export DB_URL='jdbc:h2:mem'\nexport QUOTE='it'\\''s $HOME'\n",
+                encode("shell", "db.url", "jdbc:h2:mem", "quote", "it's $HOME"));
+    }
+
+    @Test
+    public void testFilterByPrefixAndPatterns() {
+        Properties properties = new Properties();
+        String[] keys = {"app", "app.db.url", "app.db.user", "app.name", "app-x", "java.home", "db.url"};
+        for (String key : keys) {
+            properties.setProperty(key, key.toUpperCase());
+        }
+        SortedProperties sorted = SortedProperties.of(properties);
+
+        assertArrayEquals(
+                new String[] {"app", "app.db.url", "app.db.user", "app.name", "app-x"},
+                sorted.filter("app", false, emptyList(), emptyList()).keys());
+        SortedProperties stripped = sorted.filter("app.", true, emptyList(), singletonList("*.user"));
+        assertArrayEquals(new String[] {"db.url", "name"}, stripped.keys());
+        assertEquals("APP.DB.URL", stripped.get("db.url"));
+        assertArrayEquals(
+                new String[] {"app.db.url", "db.url"},
+                sorted.filter(null, false, Arrays.asList("*.url", "app.db.u?l"), emptyList())
+                        .keys());
+        assertArrayEquals(
+                new String[] {"app.name"},
+                sorted.filter("app.", false, Arrays.asList("app.n*", "java.*"), emptyList())
+                        .keys());
+        assertArrayEquals(
+                new String[0],
+                sorted.filter("java.", false, singletonList("app*"), emptyList())
+                        .keys());
+    }
+
+    @Test
+    public void testUnknownFormat() {
+        assertNull(PropertiesEncoder.forFormat("xml"));
+    }
+}
@@ -0,0 +1,131 @@
+package org.codehaus.mojo.properties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PropertiesParserTest {
+
+    private static final long SEED = 42;
+
+    private static final int RANDOM_SOURCES = 2000;
+
+    private static final int MAX_RANDOM_LENGTH = 60;
+
+    private static final int LARGE_ENTRIES = 200_000;
+
+    private static final String GRAMMAR = "# comment\n"
+            + "! bang comment \\\n"
+            + "plain=value\n"
+            + "  indented = spaced value  \n"
+            + "colon:value\n"
+            + "space separated value\n"
+            + "tab\tseparated\n"
+            + "both = : value\n"
+            + "empty=\n"
+            + "novalue\n"
+            + "escaped\\ key\\=\\:=escaped\\tvalue\\n\n"
+            + "unicode=\\u00e9t\\u00C9\n"
+            + "continued=one, \\\n"
+            + "    two, \\\r\n"
+            + "\tthree\n"
+            + "crlf=yes\r\n"
+            + "cr=yes\r"
+            + "even\\\\=backslashes\\\\\n"
+            + "raw=café\n"
+            + "   # not a comment after continuation? \\\n"
+            + "last=at eof \\";
+
+    @Test
+    public void testMatchesPropertiesLoadIso88591() throws Exception {
+        assertSameAsProperties(GRAMMAR, "ISO-8859-1");
+    }
+
+    @Test
+    public void testMatchesPropertiesLoadUtf8() throws Exception {
+        assertSameAsProperties(GRAMMAR + "\nsnowman=☃\nbad=ÿ", "UTF-8");
+    }
+
+    @Test
+    public void testMatchesPropertiesLoadOnRandomInput() throws Exception {
+        Random random = new Random(SEED);
+        String alphabet = "ab =:#!\\ \t\f\r\nu0Fzé";
+        for (int i = 0; i < RANDOM_SOURCES; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(MAX_RANDOM_LENGTH);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            try {
+                assertSameAsProperties(sb.toString(), "UTF-8");
+            } catch (IllegalArgumentException e) {
+                // malformed \\u escape, checked below
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedUnicodeEscape() {
+        assertThrows(IOException.class, () -> parse("key=\\u12G4", "ISO-8859-1"));
+        assertThrows(IOException.class, () -> parse("key=\\u12", "ISO-8859-1"));
+    }
+
+    @Test
+    public void testLargeInputIsMappedAndMatchesPropertiesLoad() throws Exception {
+        for (String encoding : new String[] {"ISO-8859-1", "UTF-8"}) {
+            StringBuilder sb = new StringBuilder(GRAMMAR).append('\n');
+            for (int i = 0; i < LARGE_ENTRIES; i++) {
+                sb.append("generated.key.")
+                        .append(i)
+                        .append('=')
+                        .append("valué ")
+                        .append(i)
+                        .append('\n');
+            }
+            String source = sb.toString();
+            assertTrue(source.getBytes(encoding).length >= PropertiesParser.MAP_THRESHOLD);
+
+            Map<String, String> parsed = assertSameAsProperties(source, encoding);
+            int last = LARGE_ENTRIES - 1;
+            assertEquals("valué " + last, parsed.get("generated.key." + last));
+        }
+    }
+
+    /* Parses a file, as for local sources */
+    private static Map<String, String> parse(String source, String encoding) throws IOException {
+        Path file = Files.createTempFile("parser-test", ".properties");
+        try {
+            Files.write(file, source.getBytes(encoding));
+            return PropertiesParser.parse(file, encoding);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /* Checks both the file and the in-memory (URL) paths against Properties.load */
+    private static Map<String, String> assertSameAsProperties(String source, String encoding) throws IOException {
+        Properties expected = new Properties();
+        expected.load(new InputStreamReader(new ByteArrayInputStream(source.getBytes(encoding)), encoding));
+        Map<String, String> expectedMap = new HashMap<>();
+        for (String key : expected.stringPropertyNames()) {
+            expectedMap.put(key, expected.getProperty(key));
+        }
+        assertEquals(expectedMap, PropertiesParser.parse(ByteBuffer.wrap(source.getBytes(encoding)), encoding));
+        Map<String, String> parsed = parse(source, encoding);
+        assertEquals(expectedMap, parsed);
+        return parsed;
+    }
+}
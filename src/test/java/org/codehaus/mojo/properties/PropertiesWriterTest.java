@@ -0,0 +1,121 @@
+package org.codehaus.mojo.properties;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PropertiesWriterTest {
+    private static final long SEED = 42;
+
+    private static final int LARGE_ENTRIES = 100_000;
+
+    private static final int MAX_KEY_LENGTH = 24;
+
+    private static final int MAX_VALUE_LENGTH = 48;
+
+    /* What the write goals did before: store, drop the date, sort the escaped lines */
+    private static byte[] legacy(Properties properties, String comments, Charset encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(bytes, encoding));
+                StringWriter sw = new StringWriter()) {
+            properties.store(sw, comments);
+            comments = '#' + comments;
+
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader r = new BufferedReader(new StringReader(sw.toString()))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (!line.startsWith("#") || line.equals(comments)) {
+                        lines.add(line);
+                    }
+                }
+            }
+
+            Collections.sort(lines);
+            for (String l : lines) {
+                pw.println(l);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] write(Properties properties, Charset encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new OutputStreamWriter(bytes, encoding)) {
+            new PropertiesWriter("Properties").encode(SortedProperties.of(properties), out);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testEscapesAndOrderMatchStore() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("a", "1");
+        properties.setProperty("a.b", "2");
+        properties.setProperty("a b", " leading and trailing ");
+        properties.setProperty("", "empty key");
+        properties.setProperty("\"quoted\"", "before the comment");
+        properties.setProperty("#hash", "!bang");
+        properties.setProperty("key=with:separators", "value=with:separators#and!");
+        properties.setProperty("tabs\tand\nnewlines", "\t\r\n\f");
+        properties.setProperty("back\\slash", "c:\\temp\\");
+        properties.setProperty("caf\u00e9", "\u03ba\u03cc\u03c3\u03bc\u03b5\u2122");
+        properties.setProperty("control\u0001", "\u0000");
+
+        for (Charset encoding : new Charset[] {StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8}) {
+            assertEquals(
+                    new String(legacy(properties, "Properties", encoding), encoding),
+                    new String(write(properties, encoding), encoding));
+            assertArrayEquals(legacy(properties, "Properties", encoding), write(properties, encoding));
+        }
+    }
+
+    @Test
+    public void testEmptyPropertiesOnlyHaveTheComment() throws IOException {
+        Properties properties = new Properties();
+
+        assertArrayEquals(
+                legacy(properties, "Properties", StandardCharsets.UTF_8), write(properties, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLargePropertiesMatchStore() throws IOException {
+        String alphabet = "abcXYZ019._-/\\ =:#!\t\n\"$\u00e9\u20ac";
+        Random random = new Random(SEED);
+        Properties properties = new Properties();
+        while (properties.size() < LARGE_ENTRIES) {
+            properties.setProperty(
+                    randomString(random, alphabet, 1 + random.nextInt(MAX_KEY_LENGTH)),
+                    randomString(random, alphabet, random.nextInt(MAX_VALUE_LENGTH)));
+        }
+
+        for (Charset encoding : new Charset[] {StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8}) {
+            assertArrayEquals(legacy(properties, "Properties", encoding), write(properties, encoding));
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+}
@@ -4,18 +4,32 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.model.Model;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.project.MavenProject;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class ReadPropertiesMojoTest {
     private static final String NEW_LINE = System.getProperty("line.separator");
@@ -264,6 +278,196 @@ public class ReadPropertiesMojoTest {
         assertEquals("${unknown:  }", value13);
     }
 
+    @Test
+    public void readPropertiesInParallelKeepsDeclaredPrecedence() throws Exception {
+        File[] files = new File[10];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = File.createTempFile("prop-test", ".properties");
+            files[i].deleteOnExit();
+            try (FileWriter writer = new FileWriter(files[i])) {
+                writer.write("shared=value" + i + NEW_LINE);
+                writer.write("own" + i + "=" + i + NEW_LINE);
+            }
+        }
+        File missing = new File(files[0].getParentFile(), "does-not-exist.properties");
+        File[] withMissing = new File[files.length + 1];
+        System.arraycopy(files, 0, withMissing, 0, files.length);
+        withMissing[files.length] = missing;
+
+        readPropertiesMojo.setFiles(withMissing);
+        readPropertiesMojo.setParallel(true);
+        readPropertiesMojo.setQuiet(true);
+        readPropertiesMojo.execute();
+        Properties projectProperties = projectStub.getProperties();
+        assertEquals(11, projectProperties.size());
+        assertEquals("value9", projectProperties.getProperty("shared"));
+
+        MavenProject preserving = new MavenProject();
+        readPropertiesMojo.setProject(preserving);
+        readPropertiesMojo.setFiles(files);
+        readPropertiesMojo.setOverride(false);
+        readPropertiesMojo.execute();
+        assertEquals("value0", preserving.getProperties().getProperty("shared"));
+    }
+
+    @Test
+    public void readUrlsFetchesOnceAndRevalidatesFromCache() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        byte[] body = ("remote.key=remote value" + NEW_LINE).getBytes(StandardCharsets.ISO_8859_1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/test.properties", exchange -> {
+            requests.incrementAndGet();
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test.properties";
+            File cacheDirectory = Files.createTempDirectory("prop-cache").toFile();
+            readPropertiesMojo.setUrls(new String[] {url});
+            readPropertiesMojo.setCacheUrls(true, cacheDirectory);
+            readPropertiesMojo.execute();
+            assertEquals("remote value", projectStub.getProperties().getProperty("remote.key"));
+            assertEquals(1, requests.get());
+
+            MavenProject second = new MavenProject();
+            readPropertiesMojo.setProject(second);
+            readPropertiesMojo.execute();
+            assertEquals("remote value", second.getProperties().getProperty("remote.key"));
+            assertEquals(2, requests.get());
+            assertEquals(1, notModified.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void readPropertiesFromFileSetsInSortedOrder() throws Exception {
+        File dir = Files.createTempDirectory("prop-fileset").toFile();
+        File nested = new File(dir, "b");
+        assertTrue(nested.mkdirs());
+        String[] names = {"b/20.properties", "a.properties", "b/10.properties", "c.txt"};
+        for (String name : names) {
+            try (FileWriter writer = new FileWriter(new File(dir, name))) {
+                writer.write("shared=" + name + NEW_LINE);
+                writer.write(name.replace('/', '.') + "=x" + NEW_LINE);
+            }
+        }
+        FileSet fileSet = new FileSet();
+        fileSet.setDirectory(dir.getAbsolutePath());
+        fileSet.addInclude("**/*.properties");
+        fileSet.addExclude("**/20.*");
+
+        readPropertiesMojo.setFileSets(new FileSet[] {fileSet});
+        readPropertiesMojo.setKeyPrefix("cfg.");
+        readPropertiesMojo.setParallel(true);
+        readPropertiesMojo.execute();
+        Properties projectProperties = projectStub.getProperties();
+        assertEquals(3, projectProperties.size());
+        assertEquals("b/10.properties", projectProperties.getProperty("cfg.shared"));
+        assertEquals("x", projectProperties.getProperty("cfg.a.properties"));
+    }
+
+    @Test
+    public void readPropertiesIncrementallyReusesSnapshotUntilInputsChange() throws Exception {
+        File file = File.createTempFile("prop-test", ".properties");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("a=${incremental.test.value}" + NEW_LINE);
+        }
+        File snapshots = Files.createTempDirectory("prop-snapshots").toFile();
+        List<String> messages = new ArrayList<>();
+        readPropertiesMojo.setLog(new SystemStreamLog() {
+            @Override
+            public void info(CharSequence content) {
+                messages.add(content.toString());
+            }
+        });
+        readPropertiesMojo.setFiles(new File[] {file});
+        readPropertiesMojo.setIncremental(true, snapshots);
+
+        System.setProperty("incremental.test.value", "one");
+        try {
+            readPropertiesMojo.execute();
+            assertEquals("one", projectStub.getProperties().getProperty("a"));
+            assertTrue(messages.isEmpty());
+
+            MavenProject second = new MavenProject();
+            readPropertiesMojo.setProject(second);
+            readPropertiesMojo.execute();
+            assertEquals("one", second.getProperties().getProperty("a"));
+            assertEquals(1, messages.size());
+
+            System.setProperty("incremental.test.value", "two");
+            MavenProject third = new MavenProject();
+            readPropertiesMojo.setProject(third);
+            readPropertiesMojo.execute();
+            assertEquals("two", third.getProperties().getProperty("a"));
+            assertEquals(1, messages.size());
+
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write("a=changed" + NEW_LINE);
+            }
+            MavenProject fourth = new MavenProject();
+            readPropertiesMojo.setProject(fourth);
+            readPropertiesMojo.execute();
+            assertEquals("changed", fourth.getProperties().getProperty("a"));
+            assertEquals(1, messages.size());
+        } finally {
+            System.clearProperty("incremental.test.value");
+        }
+    }
+
+    @Test
+    public void readPropertiesInIncrementalIDEBuildOnlyReadsChangedSources() throws Exception {
+        File file = File.createTempFile("prop-test", ".properties");
+        file.deleteOnExit();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("a=first" + NEW_LINE);
+        }
+        AtomicBoolean delta = new AtomicBoolean(true);
+        readPropertiesMojo.setBuildContext(new DefaultBuildContext() {
+            @Override
+            public boolean isIncremental() {
+                return true;
+            }
+
+            @Override
+            public boolean hasDelta(File f) {
+                return delta.get();
+            }
+        });
+        readPropertiesMojo.setFiles(new File[] {file});
+        readPropertiesMojo.setIncremental(
+                false, Files.createTempDirectory("prop-snapshots").toFile());
+        readPropertiesMojo.execute();
+        assertEquals("first", projectStub.getProperties().getProperty("a"));
+
+        // without a delta the file is not read, so the previous result is applied
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("a=second" + NEW_LINE);
+        }
+        delta.set(false);
+        MavenProject second = new MavenProject();
+        readPropertiesMojo.setProject(second);
+        readPropertiesMojo.execute();
+        assertEquals("first", second.getProperties().getProperty("a"));
+
+        delta.set(true);
+        MavenProject third = new MavenProject();
+        readPropertiesMojo.setProject(third);
+        readPropertiesMojo.execute();
+        assertEquals("second", third.getProperties().getProperty("a"));
+    }
+
     private File getPropertyFileForTesting() throws IOException {
         return getPropertyFileForTesting(null);
     }
@@ -1,6 +1,9 @@
 package org.codehaus.mojo.properties;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -18,8 +21,14 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class ReadTOMLObjectAsFlattenedPropertiesMojoTest {
+    private static final int PROFILES = 2000;
+
+    /* aws_access_key_id, aws_secret_access_key and region, as written by writeCredentials */
+    private static final int KEYS_PER_PROFILE = 3;
 
     private MavenProject projectStub;
     private ReadTOMLObjectAsFlattenedPropertiesMojo readPropertiesMojo;
@@ -67,4 +76,115 @@ public class ReadTOMLObjectAsFlattenedPropertiesMojoTest {
         assertEquals(p.size(), 3);
         assertEquals(p.getProperty("name.name1.region"), "us-east-1");
     }
+
+    @Test
+    public void testArraysAreIndexed() throws Exception {
+        File f = File.createTempFile("toml-test", ".toml");
+        f.deleteOnExit();
+        Files.write(
+                f.toPath(),
+                ("azs = [\"us-east-1a\", \"us-east-1b\"]\n"
+                                + "\"quoted.key\" = 1\n"
+                                + "[[subnets]]\n"
+                                + "id = \"a\"\n"
+                                + "cidrs = [[\"10.0.0.0/24\"], []]\n"
+                                + "[[subnets]]\n"
+                                + "id = \"b\"\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        readPropertiesMojo.setReformatAWSCreds(false);
+        readPropertiesMojo.setLocalPaths(new File[] {f});
+        readPropertiesMojo.execute();
+        Properties p = readPropertiesMojo.getProject().getProperties();
+        assertEquals(6, p.size());
+        assertEquals("us-east-1a", p.getProperty("azs[0]"));
+        assertEquals("us-east-1b", p.getProperty("azs[1]"));
+        assertEquals("1", p.getProperty("\"quoted.key\""));
+        assertEquals("a", p.getProperty("subnets[0].id"));
+        assertEquals("10.0.0.0/24", p.getProperty("subnets[0].cidrs[0][0]"));
+        assertEquals("b", p.getProperty("subnets[1].id"));
+    }
+
+    @Test
+    public void testCredentialsValuesContainingEquals() throws Exception {
+        File f = File.createTempFile("awscreds-test", ".ini");
+        f.deleteOnExit();
+        Files.write(
+                f.toPath(),
+                ("; comment\r\n"
+                                + "[default]\r\n"
+                                + "aws_secret_access_key = abc+def/ghi==\r\n"
+                                + "aws_session_token=x=y=z\r\n"
+                                + "s3 =\r\n"
+                                + "  max_concurrent_requests = 20\r\n"
+                                + "region = eu-west-1\r\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        readPropertiesMojo.setLocalPaths(new File[] {f});
+        readPropertiesMojo.execute();
+        Properties p = readPropertiesMojo.getProject().getProperties();
+        assertEquals("abc+def/ghi==", p.getProperty("default.aws_secret_access_key"));
+        assertEquals("x=y=z", p.getProperty("default.aws_session_token"));
+        assertEquals("20", p.getProperty("default.s3.max_concurrent_requests"));
+        assertEquals("eu-west-1", p.getProperty("default.region"));
+    }
+
+    @Test
+    public void testLargeMultiProfileCredentials() throws Exception {
+        File f = writeCredentials(PROFILES);
+        readPropertiesMojo.setLocalPaths(new File[] {f});
+        readPropertiesMojo.execute();
+        Properties p = readPropertiesMojo.getProject().getProperties();
+        assertEquals(PROFILES * KEYS_PER_PROFILE, p.size());
+        int last = PROFILES - 1;
+        assertEquals("ACCESS" + last, p.getProperty("profile" + last + ".aws_access_key_id"));
+        assertEquals("us-east-1", p.getProperty("profile0.region"));
+    }
+
+    @Test
+    public void testLaterPathsOverrideEarlierOnes() throws Exception {
+        File[] files = new File[8];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = writeToml("shared = \"" + i + "\"\nown" + i + " = " + i + "\n");
+        }
+        readPropertiesMojo.setReformatAWSCreds(false);
+        readPropertiesMojo.setParallel(true);
+        readPropertiesMojo.setLocalPaths(files);
+        readPropertiesMojo.execute();
+        Properties p = readPropertiesMojo.getProject().getProperties();
+        assertEquals(9, p.size());
+        assertEquals("7", p.getProperty("shared"));
+    }
+
+    @Test
+    public void testParseErrorsAreReportedTogether() throws Exception {
+        File good = writeToml("a = 1\n");
+        File bad1 = writeToml("a = \n");
+        File bad2 = writeToml("[unterminated\n");
+        readPropertiesMojo.setReformatAWSCreds(false);
+        readPropertiesMojo.setParallel(true);
+        readPropertiesMojo.setLocalPaths(new File[] {bad1, good, bad2});
+        MojoExecutionException e = assertThrows(MojoExecutionException.class, () -> readPropertiesMojo.execute());
+        assertTrue(e.getMessage().startsWith("2 error(s)"));
+        assertTrue(readPropertiesMojo.getProject().getProperties().isEmpty());
+    }
+
+    private static File writeToml(String content) throws IOException {
+        File f = File.createTempFile("toml-test", ".toml");
+        f.deleteOnExit();
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private static File writeCredentials(int profiles) throws IOException {
+        File f = File.createTempFile("awscreds-test", ".toml");
+        f.deleteOnExit();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < profiles; i++) {
+            sb.append("[profile").append(i).append("]\n");
+            sb.append("aws_access_key_id = ACCESS").append(i).append('\n');
+            sb.append("aws_secret_access_key = SECRET").append(i).append('\n');
+            sb.append("region = us-east-1\n\n");
+        }
+        Files.write(f.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
 }
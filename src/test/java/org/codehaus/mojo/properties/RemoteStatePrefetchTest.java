@@ -0,0 +1,196 @@
+package org.codehaus.mojo.properties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RemoteStatePrefetchTest {
+    private Settings settings;
+
+    private Path repository;
+
+    /* Of the repository, without a trailing slash */
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        settings = new Settings();
+        Server server = new Server();
+        server.setId("artifacts");
+        settings.addServer(server);
+        repository = Files.createTempDirectory("states");
+        repository.toFile().deleteOnExit();
+        Files.createDirectories(repository.resolve("tf"));
+        url = repository.toUri().toString().replaceAll("/$", "");
+    }
+
+    @Test
+    public void testCollectDeduplicatesAcrossProjectsAndAppliesDefaults() throws Exception {
+        MavenProject network = project(
+                "<configuration><s3RemoteStateDefaults><region>us-east-1</region><bucket>states</bucket>"
+                        + "</s3RemoteStateDefaults></configuration>",
+                "<configuration><s3Urls><s3Url><key>network.tfstate</key></s3Url>"
+                        + "<s3Url><key>dns.tfstate</key></s3Url></s3Urls></configuration>");
+        MavenProject service = project(
+                null,
+                "<configuration><s3RemoteStateDefaults><region>us-east-1</region><bucket>states</bucket>"
+                        + "</s3RemoteStateDefaults><s3Urls><s3Url><key>dns.tfstate</key></s3Url>"
+                        + "<s3Url><key>${state.key}</key></s3Url></s3Urls></configuration>",
+                "<configuration><artifactRepoRemoteStateDefaults><serverId>artifacts</serverId>"
+                        + "<url>https://repo.example.com</url><repo>tf</repo></artifactRepoRemoteStateDefaults>"
+                        + "<artifactRepoRemoteStates><state><subpath>service.tfstate</subpath></state>"
+                        + "<state><coordinates>com.example:service:1.0</coordinates></state>"
+                        + "</artifactRepoRemoteStates></configuration>");
+        MavenProject unrelated = new MavenProject(new Model());
+
+        Map<String, Callable<String>> reads =
+                RemoteStatePrefetch.collect(new MavenSessionStub(settings, network, unrelated, service));
+
+        assertEquals(
+                Arrays.asList(
+                        "s3://states/network.tfstate?region=us-east-1&profile=null&serverId=null",
+                        "s3://states/dns.tfstate?region=us-east-1&profile=null&serverId=null",
+                        "https://repo.example.com/tf/service.tfstate?serverId=artifacts"),
+                Arrays.asList(reads.keySet().toArray()));
+    }
+
+    @Test
+    public void testIncompleteConfigurationIsLeftToTheExecution() throws Exception {
+        MavenProject project = project(
+                null,
+                "<configuration><s3Urls><s3Url><key>no-bucket.tfstate</key></s3Url></s3Urls>"
+                        + "<artifactRepoRemoteStates><state><subpath>no-url.tfstate</subpath></state>"
+                        + "</artifactRepoRemoteStates></configuration>");
+
+        assertEquals(
+                Collections.emptySet(),
+                RemoteStatePrefetch.collect(new MavenSessionStub(settings, project))
+                        .keySet());
+    }
+
+    @Test
+    public void testParticipantSharesFetchesThroughTheSession() throws Exception {
+        write("service.tfstate", "{\"a\":1}");
+        MavenProject project = project(null, fileStates("service.tfstate"));
+        MavenSessionStub session = new MavenSessionStub(settings, project);
+
+        new RemoteStatePrefetchParticipant().afterProjectsRead(session);
+
+        Map<String, Future<String>> prefetched = RemoteStatePrefetch.prefetched(session);
+        assertEquals(1, prefetched.size());
+        assertEquals("{\"a\":1}", prefetched.get(location("service.tfstate")).get());
+    }
+
+    @Test
+    public void testExecutionUsesTheFetchStartedForItsLocation() throws Exception {
+        write("service.tfstate", "{\"a\":1}");
+        MavenProject project = project(null, fileStates("service.tfstate"));
+        MavenSessionStub session = new MavenSessionStub(settings, project);
+        session.getRepositorySession()
+                .getData()
+                .set(
+                        RemoteStatePrefetch.SESSION_KEY,
+                        Collections.singletonMap(
+                                location("service.tfstate"), CompletableFuture.completedFuture("{\"a\":2}")));
+
+        read(project, session, "service.tfstate");
+
+        assertEquals("2", project.getProperties().getProperty("a"));
+    }
+
+    @Test
+    public void testExecutionWithoutTheParticipantReadsDirectly() throws Exception {
+        write("service.tfstate", "{\"a\":1}");
+        MavenProject project = project(null, fileStates("service.tfstate"));
+        MavenSessionStub session = new MavenSessionStub(settings, project);
+
+        read(project, session, "service.tfstate");
+
+        assertNull(RemoteStatePrefetch.prefetched(session));
+        assertEquals("1", project.getProperties().getProperty("a"));
+    }
+
+    private void read(MavenProject project, MavenSessionStub session, String subpath) throws Exception {
+        ArtifactRepoRemoteState state = new ArtifactRepoRemoteState();
+        state.setServerId("artifacts");
+        state.setUrl(url);
+        state.setRepo("tf");
+        state.setSubpath(subpath);
+        ReadJSONObjectAsFlattenedPropertiesMojo mojo = new ReadJSONObjectAsFlattenedPropertiesMojo();
+        mojo.setProject(project);
+        mojo.setSettings(settings);
+        mojo.setSession(session);
+        mojo.setArtifactRepoRemoteStates(state);
+        mojo.execute();
+    }
+
+    private void write(String subpath, String json) throws IOException {
+        File file = repository.resolve("tf").resolve(subpath).toFile();
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        file.deleteOnExit();
+    }
+
+    private String fileStates(String subpath) {
+        return "<configuration><artifactRepoRemoteStates><state><serverId>artifacts</serverId><url>"
+                + url + "</url><repo>tf</repo><subpath>" + subpath
+                + "</subpath></state></artifactRepoRemoteStates></configuration>";
+    }
+
+    private String location(String subpath) {
+        return url + "/tf/" + subpath + "?serverId=artifacts";
+    }
+
+    /* A project with the plugin, configured by pluginConfiguration, and one read execution per configuration */
+    private static MavenProject project(String pluginConfiguration, String... executionConfigurations)
+            throws Exception {
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("org.infrastructurebuilder.maven");
+        plugin.setArtifactId("properties-maven-plugin");
+        plugin.setConfiguration(dom(pluginConfiguration));
+        for (int i = 0; i < executionConfigurations.length; i++) {
+            PluginExecution execution = new PluginExecution();
+            execution.setId("read-" + i);
+            execution.addGoal(RemoteStatePrefetch.GOAL);
+            execution.setConfiguration(dom(executionConfigurations[i]));
+            plugin.addExecution(execution);
+        }
+        PluginExecution other = new PluginExecution();
+        other.setId("write");
+        other.addGoal("write-project-properties");
+        other.setConfiguration(dom(
+                "<configuration><s3Urls><s3Url><bucket>b</bucket><key>k</key></s3Url></s3Urls>" + "</configuration>"));
+        plugin.addExecution(other);
+        Model model = new Model();
+        model.setBuild(new Build());
+        model.getBuild().addPlugin(plugin);
+        return new MavenProject(model);
+    }
+
+    private static Xpp3Dom dom(String xml) throws Exception {
+        return xml != null ? Xpp3DomBuilder.build(new StringReader(xml)) : null;
+    }
+}
@@ -0,0 +1,225 @@
+package org.codehaus.mojo.properties;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
+
+public class S3RemoteStateTest {
+    private static final String STATE = "{\"a\":1}";
+
+    private static final String CHANGED = "{\"a\":2}";
+
+    /* The object in the bucket */
+    private String content;
+
+    private String etag;
+
+    private int heads;
+
+    private int gets;
+
+    private File cacheDirectory;
+
+    private ContentStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        content = STATE;
+        etag = "v1";
+        cacheDirectory = Files.createTempDirectory("store").toFile();
+        cacheDirectory.deleteOnExit();
+        store = new ContentStore(cacheDirectory);
+    }
+
+    @Test
+    public void testDownloadIsStoredWithItsETag() throws Exception {
+        S3RemoteState state = state();
+
+        assertEquals(STATE, state.readContents(store));
+
+        assertEquals(1, gets);
+        assertEquals(0, heads);
+        assertEquals("v1", store.get(state.getLocation()).getMetadata("etag"));
+    }
+
+    @Test
+    public void testUnchangedETagIsReadFromTheStore() throws Exception {
+        S3RemoteState state = state();
+        state.readContents(store);
+
+        assertEquals(0, state.prefetch(store));
+
+        assertEquals(1, gets);
+        assertEquals(1, heads);
+    }
+
+    @Test
+    public void testChangedETagIsDownloaded() throws Exception {
+        S3RemoteState state = state();
+        state.readContents(store);
+        content = CHANGED;
+        etag = "v2";
+
+        assertEquals(CHANGED.length(), state.prefetch(store));
+
+        assertEquals(2, gets);
+        assertEquals(1, heads);
+        assertEquals(CHANGED, new String(store.get(state.getLocation()).getContent(), StandardCharsets.UTF_8));
+        assertEquals("v2", store.get(state.getLocation()).getMetadata("etag"));
+    }
+
+    @Test
+    public void testEntryWithoutETagIsDownloadedWithoutAsking() throws Exception {
+        S3RemoteState state = state();
+        store.put(state.getLocation(), STATE.getBytes(StandardCharsets.UTF_8), Collections.emptyMap());
+        content = CHANGED;
+
+        assertEquals(CHANGED, state.readContents(store));
+
+        assertEquals(1, gets);
+        assertEquals(0, heads);
+    }
+
+    @Test
+    public void testPinnedVersionIsReadFromTheStore() throws Exception {
+        S3RemoteState state = state();
+        state.setVersionId("3");
+        state.readContents(store);
+        content = CHANGED;
+
+        assertEquals(STATE, state.readContents(store));
+        assertEquals(0, state.prefetch(store));
+
+        assertEquals(1, gets);
+        assertEquals(0, heads);
+    }
+
+    @Test
+    public void testPinnedETagIsReadFromTheStore() throws Exception {
+        S3RemoteState state = state();
+        state.setEtag("v1");
+
+        assertEquals(STATE.length(), state.prefetch(store));
+        assertEquals(STATE, state.readContents(store));
+
+        assertEquals(1, gets);
+        assertEquals(0, heads);
+    }
+
+    @Test
+    public void testPinnedETagThatNoLongerMatchesFails() throws Exception {
+        S3RemoteState state = state();
+        state.setEtag("v0");
+
+        IOException e = assertThrows(IOException.class, () -> state.readContents(store));
+
+        assertEquals("s3://states/service.tfstate no longer has ETag v0 in default", e.getMessage());
+        assertNull(store.get(state.getLocation()));
+    }
+
+    @Test
+    public void testEntriesAreOnlyReadableByTheirOwner() throws Exception {
+        assumeTrue(cacheDirectory
+                .toPath()
+                .getFileSystem()
+                .supportedFileAttributeViews()
+                .contains("posix"));
+
+        state().readContents(store);
+
+        File[] entries = cacheDirectory.listFiles();
+        assertEquals(2, entries.length);
+        for (File entry : entries) {
+            entry.deleteOnExit();
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(entry.toPath())));
+        }
+    }
+
+    @Test
+    public void testReaderOnlyKeepsObjectsWhenAskedTo() throws Exception {
+        Path directory = cacheDirectory.toPath().resolve("s3");
+
+        read(false, directory);
+        assertFalse(Files.exists(directory));
+
+        read(true, directory);
+        ContentStore.Entry stored = new ContentStore(directory.toFile()).get(state().getLocation());
+        assertEquals(STATE, new String(stored.getContent(), StandardCharsets.UTF_8));
+        assertEquals(2, gets);
+    }
+
+    private void read(boolean cache, Path directory) throws Exception {
+        MavenProject project = new MavenProject(new Model());
+        ReadJSONObjectAsFlattenedPropertiesMojo mojo = new ReadJSONObjectAsFlattenedPropertiesMojo();
+        mojo.setProject(project);
+        mojo.setSettings(new Settings());
+        mojo.setS3Urls(new S3RemoteState[] {state()});
+        mojo.setCacheS3Urls(cache, directory.toFile());
+        mojo.execute();
+        assertEquals("1", project.getProperties().getProperty("a"));
+    }
+
+    /* A state of the object, read through a client that counts its requests */
+    private S3RemoteState state() throws Exception {
+        S3RemoteState state = new S3RemoteState() {
+            @Override
+            AmazonS3 client() {
+                return (AmazonS3) Proxy.newProxyInstance(
+                        getClass().getClassLoader(), new Class<?>[] {AmazonS3.class}, (proxy, method, args) -> {
+                            if ("getObjectMetadata".equals(method.getName())) {
+                                heads++;
+                                return metadata();
+                            }
+                            if ("getObject".equals(method.getName()) && args[0] instanceof GetObjectRequest) {
+                                return get((GetObjectRequest) args[0]);
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        });
+            }
+        };
+        state.setBucket("states");
+        state.setKey("service.tfstate");
+        return state.validate(null, new Settings());
+    }
+
+    private S3Object get(GetObjectRequest request) {
+        gets++;
+        if (!request.getMatchingETagConstraints().isEmpty()
+                && !request.getMatchingETagConstraints().contains(etag)) {
+            /* What the client returns when a constraint is not met */
+            return null;
+        }
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        object.setObjectMetadata(metadata());
+        return object;
+    }
+
+    private ObjectMetadata metadata() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", etag);
+        return metadata;
+    }
+}
@@ -0,0 +1,56 @@
+package org.codehaus.mojo.properties;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.settings.Server;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ServerConfigurationsTest {
+
+    @Test
+    public void testConfigurationIsFlattened() throws Exception {
+        Xpp3Dom dom = Xpp3DomBuilder.build(new StringReader("<configuration>"
+                + "<timeout>30</timeout>"
+                + "<httpHeaders><property><name>a</name><value>1</value></property>"
+                + "<property><name>b</name><value>{secret}</value></property></httpHeaders>"
+                + "<proxy type=\"http\"><host>example.org</host></proxy>"
+                + "<empty/>"
+                + "</configuration>"));
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("configuration.timeout", "30");
+        expected.put("configuration.httpHeaders.property[0].name", "a");
+        expected.put("configuration.httpHeaders.property[0].value", "1");
+        expected.put("configuration.httpHeaders.property[1].name", "b");
+        expected.put("configuration.httpHeaders.property[1].value", "{secret}");
+        expected.put("configuration.proxy@type", "http");
+        expected.put("configuration.proxy.host", "example.org");
+        assertEquals(expected, ServerConfigurations.flatten(dom));
+    }
+
+    @Test
+    public void testEachServerIsFlattenedOnce() throws Exception {
+        Server server = new Server();
+        server.setId("repo");
+        server.setConfiguration(Xpp3DomBuilder.build(new StringReader("<configuration><a>1</a></configuration>")));
+        ServerConfigurations configurations = new ServerConfigurations();
+
+        Map<String, String> first = configurations.get(server);
+        assertEquals("1", first.get("configuration.a"));
+        assertSame(first, configurations.get(server));
+
+        server.setConfiguration(Xpp3DomBuilder.build(new StringReader("<configuration><a>2</a></configuration>")));
+        assertEquals("2", configurations.get(server).get("configuration.a"));
+
+        server.setConfiguration(null);
+        assertTrue(configurations.get(server).isEmpty());
+    }
+}
@@ -4,18 +4,29 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
 
 public class WriteProjectPropertiesMojoTest {
     private Map<String, String> represent;
@@ -122,6 +133,155 @@ public class WriteProjectPropertiesMojoTest {
         }
     }
 
+    @Test
+    public void writePropertiesLeavesUnchangedFileUntouched() throws Exception {
+        File outputFile = File.createTempFile("prop-test", ".properties");
+        outputFile.deleteOnExit();
+        writePropertiesMojo.setOutputFile(outputFile);
+        projectStub.getProperties().putAll(represent);
+
+        writePropertiesMojo.execute();
+        byte[] written = Files.readAllBytes(outputFile.toPath());
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+        Files.setLastModifiedTime(outputFile.toPath(), past);
+
+        writePropertiesMojo.execute();
+        assertEquals(past, Files.getLastModifiedTime(outputFile.toPath()));
+        assertArrayEquals(written, Files.readAllBytes(outputFile.toPath()));
+
+        projectStub.getProperties().setProperty("test.property2", "changed");
+        writePropertiesMojo.execute();
+        assertNotEquals(past, Files.getLastModifiedTime(outputFile.toPath()));
+        try (FileInputStream fileStream = new FileInputStream(outputFile);
+                InputStreamReader fr = new InputStreamReader(fileStream, StandardCharsets.ISO_8859_1)) {
+            Properties savedProperties = new Properties();
+            savedProperties.load(fr);
+            assertEquals("changed", savedProperties.getProperty("test.property2"));
+        }
+        File[] leftovers = outputFile
+                .getParentFile()
+                .listFiles((dir, name) -> name.startsWith(outputFile.getName()) && name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length);
+    }
+
+    @Test
+    public void writePropertiesKeepsFilePermissions() throws Exception {
+        Path dir = Files.createTempDirectory("prop-test");
+        Path reference = dir.resolve("reference");
+        Files.createFile(reference);
+        assumeTrue(Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class));
+        Path outputFile = dir.resolve("test.properties");
+        writePropertiesMojo.setOutputFile(outputFile.toFile());
+        projectStub.getProperties().putAll(represent);
+
+        // a new file gets the default permissions, not the rw------- of a temporary file
+        writePropertiesMojo.execute();
+        assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(outputFile));
+
+        // a replaced file keeps its own
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(outputFile, permissions);
+        projectStub.getProperties().setProperty("test.property2", "changed");
+        writePropertiesMojo.execute();
+        assertEquals(permissions, Files.getPosixFilePermissions(outputFile));
+
+        Files.delete(outputFile);
+        Files.delete(reference);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void writeSeveralFormatsInOneExecution() throws Exception {
+        File json = File.createTempFile("prop-test", ".json");
+        json.deleteOnExit();
+        File env = File.createTempFile("prop-test", ".env");
+        env.deleteOnExit();
+        Output jsonOutput = new Output();
+        jsonOutput.setFile(json);
+        jsonOutput.setFormat("json");
+        Output envOutput = new Output();
+        envOutput.setFile(env);
+        envOutput.setFormat("dotenv");
+        writePropertiesMojo.setOutputFile(null);
+        writePropertiesMojo.setOutputs(new Output[] {jsonOutput, envOutput});
+        projectStub.getProperties().putAll(represent);
+
+        writePropertiesMojo.execute();
+
+        assertEquals(
+                "{\n  \"test\": {\n    \"property1\": \"value1®\",\n    \"property2\": \"value2\"\n  }\n}\n",
+                new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8));
+        assertEquals(
+                "TEST_PROPERTY1='value1®'\nTEST_PROPERTY2='value2'\n",
+                new String(Files.readAllBytes(env.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testUnknownOutputFormat() throws Exception {
+        Output output = new Output();
+        output.setFile(File.createTempFile("prop-test", ".xml"));
+        output.getFile().deleteOnExit();
+        output.setFormat("xml");
+        writePropertiesMojo.setOutputs(new Output[] {output});
+        MojoExecutionException thrown = assertThrows(MojoExecutionException.class, () -> writePropertiesMojo.execute());
+        assertEquals(
+                "Unknown format 'xml' for " + output.getFile() + ", use properties, json, yaml, dotenv or shell",
+                thrown.getMessage());
+    }
+
+    @Test
+    public void writePropertiesOverlaysSystemProperties() throws Exception {
+        File outputFile = File.createTempFile("prop-test", ".properties");
+        outputFile.deleteOnExit();
+        writePropertiesMojo.setOutputFile(outputFile);
+        writePropertiesMojo.setLogOverrides(true);
+        projectStub.getProperties().setProperty("java.version", "from the project");
+        projectStub.getProperties().setProperty("test.only.in.project", "kept");
+
+        writePropertiesMojo.execute();
+
+        try (FileInputStream fileStream = new FileInputStream(outputFile);
+                InputStreamReader fr = new InputStreamReader(fileStream, StandardCharsets.ISO_8859_1)) {
+            Properties savedProperties = new Properties();
+            savedProperties.load(fr);
+            assertEquals(2, savedProperties.size());
+            assertEquals(System.getProperty("java.version"), savedProperties.getProperty("java.version"));
+            assertEquals("kept", savedProperties.getProperty("test.only.in.project"));
+        }
+    }
+
+    @Test
+    public void writePropertiesSeesSystemPropertiesSetEarlierInTheSession() throws Exception {
+        MavenSession session = new MavenSessionStub(null, projectStub);
+        String key = "test.set.system.property";
+        File outputFile = File.createTempFile("prop-test", ".properties");
+        outputFile.deleteOnExit();
+        writePropertiesMojo.setOutputFile(outputFile);
+        writePropertiesMojo.setSession(session);
+        projectStub.getProperties().setProperty(key, "from the project");
+        try {
+            // an earlier execution takes the session snapshot
+            writePropertiesMojo.execute();
+
+            Properties system = new Properties();
+            system.setProperty(key, "from set-system-properties");
+            SetSystemPropertiesMojo setSystemProperties = new SetSystemPropertiesMojo();
+            setSystemProperties.setProperties(system, session);
+            setSystemProperties.execute();
+
+            writePropertiesMojo.execute();
+        } finally {
+            System.clearProperty(key);
+        }
+
+        try (FileInputStream fileStream = new FileInputStream(outputFile);
+                InputStreamReader fr = new InputStreamReader(fileStream, StandardCharsets.ISO_8859_1)) {
+            Properties savedProperties = new Properties();
+            savedProperties.load(fr);
+            assertEquals("from set-system-properties", savedProperties.getProperty(key));
+        }
+    }
+
     @Test
     public void testInvalidEncoding() throws Exception {
         final Map<String, String> propMap = new HashMap<>();